@@ -69,4 +69,29 @@ public abstract class AudioEvent implements Comparable<AudioEvent> {
 	 * Abstract method that does nothing for now.
 	 */
 	public abstract void cancel();
+
+	/**
+	 * Schedules the event to execute after a delay, for events that can be
+	 * timed by the synthesizer instead of the thread that calls them. By
+	 * default events cannot, and must be executed when they are due.
+	 * 
+	 * @param delayNanos - how long from now the event is due, in nanoseconds
+	 * @return true if the event was scheduled, false if it was not
+	 */
+	public boolean executeAhead(long delayNanos) {
+		return false;
+	}
+
+	/**
+	 * Schedules the event to complete after a delay, for events that can be
+	 * timed by the synthesizer instead of the thread that calls them. By
+	 * default events cannot, and must be completed when they are due.
+	 * 
+	 * @param delayNanos - how long from now the completion is due, in
+	 *                   nanoseconds
+	 * @return true if the completion was scheduled, false if it was not
+	 */
+	public boolean completeAhead(long delayNanos) {
+		return false;
+	}
 }
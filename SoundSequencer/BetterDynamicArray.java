@@ -47,9 +47,7 @@ public class BetterDynamicArray <T> {
 		if (elementCount == elements.length)
 			doubleBackingArray();
 
-		for (int i = elementCount - 1; i >= index; i--) {
-			elements[i + 1] = elements[i];
-		}
+		System.arraycopy(elements, index, elements, index + 1, elementCount - index);
 		elements[index] = value;
 		elementCount++;
 	}
@@ -113,10 +111,9 @@ public class BetterDynamicArray <T> {
 		if (index >= elementCount || index < 0)
 			throw new IndexOutOfBoundsException("The index must be valid");
 
-		for (int i = index; i >= elementCount; i++) {
-			elements[index] = elements[index + 1];
-		}
 		elementCount--;
+		System.arraycopy(elements, index + 1, elements, index, elementCount - index);
+		elements[elementCount] = null;
 	}
 
 	/**
@@ -124,14 +121,16 @@ public class BetterDynamicArray <T> {
 	 * no equal element is found, the array is not changed.
 	 * 
 	 * @param value - the AudioEvent to be removed
+	 * @return the index it was removed from, or -1 if none was found
 	 */
-	public void remove(T value) {
-		for (int i = 0; i > elementCount; i++) {
+	public int remove(T value) {
+		for (int i = 0; i < elementCount; i++) {
 			if (elements[i].equals(value)) {
 				remove(i);
-				break;
+				return i;
 			}
 		}
+		return -1;
 	}
 
 	/**
@@ -149,6 +148,70 @@ public class BetterDynamicArray <T> {
 		Arrays.sort(elements, 0, elementCount);
 	}
 
+	/**
+	 * Inserts a given AudioEvent into this sorted dynamic array, after any equal
+	 * elements, so it stays sorted. The position is found by binary search, so
+	 * this only costs the shift of the later elements instead of a full sort.
+	 * 
+	 * @param value - the AudioEvent to insert
+	 * @return the index at which it was inserted
+	 */
+	public int insertSorted(T value) {
+		int index = slotFor(value, elementCount);
+		insert(index, value);
+		return index;
+	}
+
+	/**
+	 * Adds every element of another dynamic array into this sorted dynamic
+	 * array, so it stays sorted. The new elements are sorted on their own and
+	 * then placed from the last to the first, each after any equal elements
+	 * already here, moving the elements after it in one block. The other
+	 * dynamic array is not changed.
+	 * 
+	 * @param other - the dynamic array whose elements to add
+	 */
+	public void mergeSorted(BetterDynamicArray<T> other) {
+		T[] added = Arrays.copyOf(other.elements, other.elementCount);
+		Arrays.sort(added);
+		if (elementCount + added.length > elements.length)
+			elements = Arrays.copyOf(elements, Math.max(elements.length * 2, elementCount + added.length));
+
+		int end = elementCount;
+		for (int j = added.length - 1; j >= 0; j--) {
+			int index = slotFor(added[j], end);
+			System.arraycopy(elements, index, elements, index + j + 1, end - index);
+			elements[index + j] = added[j];
+			end = index;
+		}
+		elementCount += added.length;
+	}
+
+	/**
+	 * Finds where a value belongs among the first elements of this sorted
+	 * dynamic array, by binary search. This depends on your AudioEvent class
+	 * implementing the Comparable interface.
+	 * 
+	 * @param value - the value to place
+	 * @param end   - the number of elements to search
+	 * @return the index after the last element that is not greater than the
+	 *         value
+	 */
+	@SuppressWarnings("unchecked")
+	private int slotFor(T value, int end) {
+		Comparable<? super T> key = (Comparable<? super T>) value;
+		int low = 0;
+		int high = end;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (key.compareTo(elements[middle]) < 0)
+				high = middle;
+			else
+				low = middle + 1;
+		}
+		return low;
+	}
+
 	/**
 	 * Generates a textual representation of this dynamic array.
 	 * 
@@ -0,0 +1,142 @@
+package assign11;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the sorted insertion, merging and removal of BetterDynamicArray.
+ *
+ * @author agent
+ * @version 2026-10-17
+ */
+public class BetterDynamicArrayTest {
+
+	@Test
+	public void insertSortedKeepsOrder() {
+		BetterDynamicArray<Integer> array = new BetterDynamicArray<Integer>();
+		assertEquals(0, array.insertSorted(5));
+		assertEquals(0, array.insertSorted(1));
+		assertEquals(1, array.insertSorted(3));
+		assertEquals(2, array.insertSorted(3));
+		assertEquals(4, array.insertSorted(9));
+		assertEquals("[1, 3, 3, 5, 9]", contents(array));
+	}
+
+	@Test
+	public void insertSortedGoesAfterEqualElements() {
+		BetterDynamicArray<AudioEvent> array = new BetterDynamicArray<AudioEvent>();
+		AudioEvent first = new Probe(10);
+		AudioEvent second = new Probe(10);
+		AudioEvent earlier = new Probe(5);
+		array.insertSorted(first);
+		array.insertSorted(second);
+		array.insertSorted(earlier);
+		assertSame(earlier, array.get(0));
+		assertSame(first, array.get(1));
+		assertSame(second, array.get(2));
+	}
+
+	@Test
+	public void mergeSortedMatchesSort() {
+		Random random = new Random(7);
+		for (int round = 0; round < 50; round++) {
+			BetterDynamicArray<Integer> array = new BetterDynamicArray<Integer>();
+			BetterDynamicArray<Integer> other = new BetterDynamicArray<Integer>();
+			int[] expected = new int[random.nextInt(40) + random.nextInt(40)];
+			for (int i = 0; i < expected.length; i++) {
+				expected[i] = random.nextInt(30);
+				if (random.nextBoolean())
+					array.insertSorted(expected[i]);
+				else
+					other.add(expected[i]);
+			}
+			int otherSize = other.size();
+			array.mergeSorted(other);
+			Arrays.sort(expected);
+			assertEquals(Arrays.toString(expected), contents(array));
+			assertEquals(otherSize, other.size());
+		}
+	}
+
+	@Test
+	public void mergeSortedGoesAfterEqualElements() {
+		BetterDynamicArray<AudioEvent> array = new BetterDynamicArray<AudioEvent>();
+		AudioEvent old = new Probe(10);
+		array.add(old);
+		BetterDynamicArray<AudioEvent> other = new BetterDynamicArray<AudioEvent>();
+		AudioEvent added = new Probe(10);
+		AudioEvent addedEarlier = new Probe(5);
+		AudioEvent addedLater = new Probe(10);
+		other.add(added);
+		other.add(addedEarlier);
+		other.add(addedLater);
+		array.mergeSorted(other);
+		assertEquals(4, array.size());
+		assertSame(addedEarlier, array.get(0));
+		assertSame(old, array.get(1));
+		assertSame(added, array.get(2));
+		assertSame(addedLater, array.get(3));
+	}
+
+	@Test
+	public void removeShiftsLaterElements() {
+		BetterDynamicArray<Integer> array = new BetterDynamicArray<Integer>();
+		for (int i = 1; i <= 5; i++)
+			array.add(i);
+		array.remove(1);
+		assertEquals("[1, 3, 4, 5]", contents(array));
+		assertEquals(2, array.remove(Integer.valueOf(4)));
+		assertEquals(-1, array.remove(Integer.valueOf(7)));
+		assertEquals("[1, 3, 5]", contents(array));
+	}
+
+	/**
+	 * Lists the elements of a dynamic array like Arrays.toString.
+	 *
+	 * @param array - the dynamic array
+	 * @return its elements in brackets, separated by commas
+	 */
+	private static String contents(BetterDynamicArray<?> array) {
+		Object[] elements = new Object[array.size()];
+		for (int i = 0; i < elements.length; i++)
+			elements[i] = array.get(i);
+		return Arrays.toString(elements);
+	}
+
+	/**
+	 * An event that does nothing, ordered by time alone.
+	 */
+	static class Probe extends AudioEvent {
+
+		/**
+		 * Creates an event.
+		 *
+		 * @param time - time in tics
+		 */
+		Probe(int time) {
+			super(time, "probe", 0);
+		}
+
+		@Override
+		public int compareTo(AudioEvent other) {
+			return Integer.compare(getTime(), other.getTime());
+		}
+
+		@Override
+		public void execute() {
+		}
+
+		@Override
+		public void complete() {
+		}
+
+		@Override
+		public void cancel() {
+		}
+	}
+}
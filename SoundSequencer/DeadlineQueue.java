@@ -0,0 +1,153 @@
+package assign11;
+
+import java.util.Arrays;
+
+/**
+ * A queue of items ordered by when they are due, kept as a binary min-heap of
+ * deadlines in nanoseconds with the items in a parallel array. Deadlines are
+ * compared by their difference, like System.nanoTime values, so they may wrap
+ * around.
+ *
+ * @author agent
+ * @version 2026-10-17
+ */
+class DeadlineQueue<T> {
+	private long[] deadlines;
+	private T[] items;
+	private int size;
+
+	/**
+	 * Creates an empty queue.
+	 */
+	@SuppressWarnings("unchecked")
+	public DeadlineQueue() {
+		deadlines = new long[16];
+		items = (T[]) new Object[16];
+		size = 0;
+	}
+
+	/**
+	 * Returns true if no items are waiting.
+	 *
+	 * @return true if the queue is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets when the earliest item is due. The queue must not be empty.
+	 *
+	 * @return the deadline in nanoseconds
+	 */
+	public long peekDeadline() {
+		return deadlines[0];
+	}
+
+	/**
+	 * Adds an item that is due at the given time.
+	 *
+	 * @param deadline - when it is due, in nanoseconds
+	 * @param item     - the item
+	 */
+	public void add(long deadline, T item) {
+		if (size == deadlines.length) {
+			deadlines = Arrays.copyOf(deadlines, size * 2);
+			items = Arrays.copyOf(items, size * 2);
+		}
+		siftUp(size++, deadline, item);
+	}
+
+	/**
+	 * Removes the earliest item. The queue must not be empty.
+	 *
+	 * @return the item
+	 */
+	public T poll() {
+		T first = items[0];
+		removeAt(0);
+		return first;
+	}
+
+	/**
+	 * Removes an item if it is in the queue. Takes time linear in the size of
+	 * the queue.
+	 *
+	 * @param item - the item to remove
+	 * @return true if it was found
+	 */
+	public boolean remove(T item) {
+		for (int i = 0; i < size; i++) {
+			if (items[i] == item) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes every item.
+	 */
+	public void clear() {
+		Arrays.fill(items, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Removes the item at a position of the heap, filling the hole with the last
+	 * item.
+	 *
+	 * @param index - position of the item
+	 */
+	private void removeAt(int index) {
+		size--;
+		long deadline = deadlines[size];
+		T item = items[size];
+		items[size] = null;
+		if (index < size) {
+			siftDown(index, deadline, item);
+			if (items[index] == item)
+				siftUp(index, deadline, item);
+		}
+	}
+
+	/**
+	 * Places an item at a position or above it, moving later parents down.
+	 *
+	 * @param index    - the position to start from
+	 * @param deadline - when the item is due
+	 * @param item     - the item
+	 */
+	private void siftUp(int index, long deadline, T item) {
+		while (index > 0 && deadlines[(index - 1) / 2] - deadline > 0) {
+			deadlines[index] = deadlines[(index - 1) / 2];
+			items[index] = items[(index - 1) / 2];
+			index = (index - 1) / 2;
+		}
+		deadlines[index] = deadline;
+		items[index] = item;
+	}
+
+	/**
+	 * Places an item at a position or below it, moving earlier children up.
+	 *
+	 * @param index    - the position to start from
+	 * @param deadline - when the item is due
+	 * @param item     - the item
+	 */
+	private void siftDown(int index, long deadline, T item) {
+		while (2 * index + 1 < size) {
+			int child = 2 * index + 1;
+			if (child + 1 < size && deadlines[child + 1] - deadlines[child] < 0)
+				child++;
+			if (deadline - deadlines[child] <= 0)
+				break;
+			deadlines[index] = deadlines[child];
+			items[index] = items[child];
+			index = child;
+		}
+		deadlines[index] = deadline;
+		items[index] = item;
+	}
+}
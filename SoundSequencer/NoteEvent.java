@@ -103,4 +103,32 @@ public class NoteEvent extends AudioEvent {
 		synthesizer.noteOff(channel, pitch);
 	}
 
+	/**
+	 * Schedules the synthesizer's noteOn after a delay, if it can schedule notes.
+	 * 
+	 * @param delayNanos - how long from now the note starts, in nanoseconds
+	 * @return true if the note was scheduled
+	 */
+	@Override
+	public boolean executeAhead(long delayNanos) {
+		if (!synthesizer.canSchedule())
+			return false;
+		synthesizer.noteOn(channel, pitch, delayNanos);
+		return true;
+	}
+
+	/**
+	 * Schedules the synthesizer's noteOff after a delay, if it can schedule notes.
+	 * 
+	 * @param delayNanos - how long from now the note ends, in nanoseconds
+	 * @return true if the note was scheduled
+	 */
+	@Override
+	public boolean completeAhead(long delayNanos) {
+		if (!synthesizer.canSchedule())
+			return false;
+		synthesizer.noteOff(channel, pitch, delayNanos);
+		return true;
+	}
+
 }
@@ -0,0 +1,291 @@
+package assign11;
+
+import java.util.Arrays;
+
+/**
+ * The notes of a track, kept as parallel arrays of ints sorted by time instead
+ * of as one NoteEvent object per note. Every note of the store plays through
+ * the same synthesizer and has the same name, so neither is repeated per note,
+ * and playing, saving, or drawing the track reads the arrays in order. A
+ * NoteEvent is only made when one is asked for.
+ *
+ * Notes with equal times keep the order they were added in.
+ *
+ * @author agent
+ * @version 2026-10-17
+ */
+public class NoteStore {
+
+	/** Velocity given to notes that do not have one. */
+	public static final int DEFAULT_VELOCITY = 100;
+
+	private final String name;
+	private final SimpleSynthesizer synthesizer;
+
+	private int[] times;
+	private int[] pitches;
+	private int[] durations;
+	private int[] channels;
+	private int[] velocities;
+	private int size;
+
+	/**
+	 * Creates an empty store.
+	 *
+	 * @param name        - the name of every note, usually the instrument
+	 * @param synthesizer - the synthesizer every note plays through
+	 */
+	public NoteStore(String name, SimpleSynthesizer synthesizer) {
+		this.name = name;
+		this.synthesizer = synthesizer;
+		times = new int[16];
+		pitches = new int[16];
+		durations = new int[16];
+		channels = new int[16];
+		velocities = new int[16];
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of notes.
+	 *
+	 * @return number of notes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the name of every note.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the synthesizer every note plays through.
+	 *
+	 * @return the synthesizer
+	 */
+	public SimpleSynthesizer getSynthesizer() {
+		return synthesizer;
+	}
+
+	/**
+	 * Gets the time of a note.
+	 *
+	 * @param index - position of the note
+	 * @return time in tics
+	 */
+	public int getTime(int index) {
+		return times[index];
+	}
+
+	/**
+	 * Gets the pitch of a note.
+	 *
+	 * @param index - position of the note
+	 * @return pitch
+	 */
+	public int getPitch(int index) {
+		return pitches[index];
+	}
+
+	/**
+	 * Gets the duration of a note.
+	 *
+	 * @param index - position of the note
+	 * @return duration in tics
+	 */
+	public int getDuration(int index) {
+		return durations[index];
+	}
+
+	/**
+	 * Gets the channel of a note.
+	 *
+	 * @param index - position of the note
+	 * @return channel
+	 */
+	public int getChannel(int index) {
+		return channels[index];
+	}
+
+	/**
+	 * Gets the velocity of a note.
+	 *
+	 * @param index - position of the note
+	 * @return velocity between 0 and 127
+	 */
+	public int getVelocity(int index) {
+		return velocities[index];
+	}
+
+	/**
+	 * Makes a NoteEvent for a note. The event is a copy, so changing the store
+	 * afterwards does not change it.
+	 *
+	 * @param index - position of the note
+	 * @return a new NoteEvent with the values of the note
+	 */
+	public NoteEvent get(int index) {
+		if (index >= size || index < 0)
+			throw new IndexOutOfBoundsException("The index must be valid");
+		return new NoteEvent(times[index], name, channels[index], durations[index], pitches[index], synthesizer);
+	}
+
+	/**
+	 * Adds a note in its place by time, after any notes with the same time.
+	 *
+	 * @param time     - time in tics
+	 * @param pitch    - pitch
+	 * @param duration - duration in tics
+	 * @param channel  - channel
+	 * @param velocity - velocity between 0 and 127
+	 * @return the index at which it was added
+	 */
+	public int add(int time, int pitch, int duration, int channel, int velocity) {
+		int index = slotFor(time);
+		if (size == times.length)
+			grow(size * 2);
+		System.arraycopy(times, index, times, index + 1, size - index);
+		System.arraycopy(pitches, index, pitches, index + 1, size - index);
+		System.arraycopy(durations, index, durations, index + 1, size - index);
+		System.arraycopy(channels, index, channels, index + 1, size - index);
+		System.arraycopy(velocities, index, velocities, index + 1, size - index);
+		set(index, time, pitch, duration, channel, velocity);
+		size++;
+		return index;
+	}
+
+	/**
+	 * Adds a note at the end, without keeping the store sorted. Call sort after
+	 * appending a batch of notes.
+	 *
+	 * @param time     - time in tics
+	 * @param pitch    - pitch
+	 * @param duration - duration in tics
+	 * @param channel  - channel
+	 * @param velocity - velocity between 0 and 127
+	 */
+	public void append(int time, int pitch, int duration, int channel, int velocity) {
+		if (size == times.length)
+			grow(size * 2);
+		set(size++, time, pitch, duration, channel, velocity);
+	}
+
+	/**
+	 * Sorts the notes by time, keeping the order of notes with equal times. The
+	 * times and positions are packed into longs, which are sorted as primitives,
+	 * and the columns are then reordered in one pass.
+	 */
+	public void sort() {
+		long[] order = new long[size];
+		for (int i = 0; i < size; i++)
+			order[i] = (long) times[i] << 32 | i;
+		Arrays.sort(order);
+		int[][] columns = { times, pitches, durations, channels, velocities };
+		for (int c = 0; c < columns.length; c++) {
+			int[] sorted = new int[columns[c].length];
+			for (int i = 0; i < size; i++)
+				sorted[i] = columns[c][(int) order[i]];
+			columns[c] = sorted;
+		}
+		times = columns[0];
+		pitches = columns[1];
+		durations = columns[2];
+		channels = columns[3];
+		velocities = columns[4];
+	}
+
+	/**
+	 * Finds the first note with a given time and pitch.
+	 *
+	 * @param time  - time in tics
+	 * @param pitch - pitch
+	 * @return its index, or -1 if there is none
+	 */
+	public int indexOf(int time, int pitch) {
+		for (int i = slotFor(time - 1); i < size && times[i] == time; i++) {
+			if (pitches[i] == pitch)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Removes a note.
+	 *
+	 * @param index - position of the note
+	 */
+	public void remove(int index) {
+		if (index >= size || index < 0)
+			throw new IndexOutOfBoundsException("The index must be valid");
+		size--;
+		System.arraycopy(times, index + 1, times, index, size - index);
+		System.arraycopy(pitches, index + 1, pitches, index, size - index);
+		System.arraycopy(durations, index + 1, durations, index, size - index);
+		System.arraycopy(channels, index + 1, channels, index, size - index);
+		System.arraycopy(velocities, index + 1, velocities, index, size - index);
+	}
+
+	/**
+	 * Removes every note.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Finds the index after the last note whose time is not greater than a given
+	 * time, by binary search.
+	 *
+	 * @param time - time in tics
+	 * @return the index
+	 */
+	public int slotFor(int time) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (time < times[middle])
+				high = middle;
+			else
+				low = middle + 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Writes the values of a note.
+	 *
+	 * @param index    - position of the note
+	 * @param time     - time in tics
+	 * @param pitch    - pitch
+	 * @param duration - duration in tics
+	 * @param channel  - channel
+	 * @param velocity - velocity
+	 */
+	private void set(int index, int time, int pitch, int duration, int channel, int velocity) {
+		times[index] = time;
+		pitches[index] = pitch;
+		durations[index] = duration;
+		channels[index] = channel;
+		velocities[index] = velocity;
+	}
+
+	/**
+	 * Makes every column longer.
+	 *
+	 * @param length - the new length
+	 */
+	private void grow(int length) {
+		times = Arrays.copyOf(times, length);
+		pitches = Arrays.copyOf(pitches, length);
+		durations = Arrays.copyOf(durations, length);
+		channels = Arrays.copyOf(channels, length);
+		velocities = Arrays.copyOf(velocities, length);
+	}
+}
@@ -0,0 +1,89 @@
+package assign11;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for keeping notes sorted in a NoteStore and removing them.
+ *
+ * @author agent
+ * @version 2026-10-17
+ */
+public class NoteStoreTest {
+
+	@Test
+	public void addKeepsNotesSortedByTime() {
+		NoteStore store = new NoteStore("piano", null);
+		assertEquals(0, store.add(50, 60, 10, 0, 100));
+		assertEquals(0, store.add(20, 62, 10, 0, 100));
+		assertEquals(2, store.add(50, 64, 10, 0, 100));
+		assertEquals(1, store.add(30, 65, 10, 0, 100));
+		assertEquals("20:62 30:65 50:60 50:64", contents(store));
+	}
+
+	@Test
+	public void sortKeepsOrderOfEqualTimes() {
+		Random random = new Random(3);
+		NoteStore appended = new NoteStore("piano", null);
+		NoteStore added = new NoteStore("piano", null);
+		for (int pitch = 0; pitch < 500; pitch++) {
+			int time = random.nextInt(40);
+			appended.append(time, pitch, 10, pitch % 16, 100);
+			added.add(time, pitch, 10, pitch % 16, 100);
+		}
+		appended.sort();
+		assertEquals(contents(added), contents(appended));
+		for (int i = 0; i < appended.size(); i++)
+			assertEquals(appended.getPitch(i) % 16, appended.getChannel(i));
+	}
+
+	@Test
+	public void removeShiftsLaterNotes() {
+		NoteStore store = new NoteStore("piano", null);
+		store.add(10, 60, 5, 1, 90);
+		store.add(20, 62, 6, 2, 91);
+		store.add(20, 64, 7, 3, 92);
+		store.add(30, 65, 8, 4, 93);
+		assertEquals(2, store.indexOf(20, 64));
+		assertEquals(-1, store.indexOf(20, 65));
+		store.remove(store.indexOf(20, 62));
+		assertEquals("10:60 20:64 30:65", contents(store));
+		assertEquals(7, store.getDuration(1));
+		assertEquals(3, store.getChannel(1));
+		assertEquals(92, store.getVelocity(1));
+		assertEquals(1, store.indexOf(20, 64));
+		assertThrows(IndexOutOfBoundsException.class, () -> store.remove(3));
+	}
+
+	@Test
+	public void getMakesMatchingNoteEvent() {
+		NoteStore store = new NoteStore("piano", null);
+		store.add(40, 67, 12, 5, 100);
+		NoteEvent note = store.get(0);
+		assertEquals(40, note.getTime());
+		assertEquals(67, note.getPitch());
+		assertEquals(12, note.getDuration());
+		assertEquals(5, note.getChannel());
+		assertEquals("piano", note.getName());
+	}
+
+	/**
+	 * Lists the times and pitches of the notes of a store in order.
+	 *
+	 * @param store - the store
+	 * @return "time:pitch" of every note, separated by spaces
+	 */
+	private static String contents(NoteStore store) {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < store.size(); i++) {
+			if (i > 0)
+				result.append(' ');
+			result.append(store.getTime(i)).append(':').append(store.getPitch(i));
+		}
+		return result.toString();
+	}
+}
@@ -1,102 +1,283 @@
 package assign11;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Timer;
-import java.util.TimerTask;
 
 /**
  * A Sequencer maintains a sequence of AudioEvents and schedules their
  * execution. Playback can be started, stopped, and set to loop. Playback speed
  * can be adjusted by setting the ratio of AudioEvent tics to milliseconds.
  * 
+ * While playing, the events are dispatched by the Transport the sequencer is
+ * registered with, which keeps one clock and a few threads for every
+ * sequencer. Since the sequence is kept sorted, the sequencer walks it with a
+ * cursor, and only the completions of events that are still sounding are
+ * queued, so memory use does not grow with the length of the sequence.
+ * 
+ * In timestamped mode, events that the synthesizer can time itself, such as
+ * notes, are handed to it a little before they are due, along with how long
+ * until they are due. What is heard then no longer depends on how late the
+ * dispatch thread wakes up, only on the audio buffer of the synthesizer.
+ * 
+ * A sequencer can also keep its notes in a NoteStore instead of as NoteEvents.
+ * NoteEvents given to such a sequencer are stored as notes, the notes are
+ * played straight from the columns of the store, and a NoteEvent is only made
+ * when iterating over the sequence.
+ * 
  * @author Eric Heisler and Jayden Whalen
  * @version 2024-10-26
  */
 public class SimpleSequencer implements Iterable<AudioEvent> {
 
+	/** How long before they are due events are scheduled in timestamped mode. */
+	private static final long LOOKAHEAD_NANOS = 30_000_000;
+
 	private BetterDynamicArray<AudioEvent> sequence;
+	private NoteStore notes;
 
-	private long startTime;
+	private volatile long startTime;
 	private int length;
-	private double speedFactor;
-	private boolean running;
-	private boolean loopSequence;
-	private Timer timer;
+	private volatile double speedFactor;
+	private volatile boolean running;
+	private volatile boolean loopSequence;
+	private volatile boolean timestamped;
+
+	// Dispatch state, guarded by this sequencer's lock. Times are in nanoseconds
+	// on the clock of the transport.
+	private final Transport transport;
+	private Transport.Slot slot; // registered when first started
+	private boolean stopped;
+	private int cursor;
+	private int refused;
+	private boolean ended;
+	private DeadlineQueue<AudioEvent> completions;
+	private int noteCursor;
+	private NoteOffQueue noteOffs;
 
 	/**
-	 * Creates an empty sequence of a given length in tics.
+	 * Creates an empty sequence of a given length in tics, played by the shared
+	 * transport.
 	 * 
 	 * @param sequenceLength - number of timing tics in the sequence
 	 */
 	public SimpleSequencer(int sequenceLength) {
+		this(sequenceLength, Transport.getShared());
+	}
+
+	/**
+	 * Creates an empty sequence of a given length in tics, played by the given
+	 * transport.
+	 * 
+	 * @param sequenceLength - number of timing tics in the sequence
+	 * @param transport      - the transport to register with
+	 */
+	public SimpleSequencer(int sequenceLength, Transport transport) {
 		sequence = new BetterDynamicArray<AudioEvent>();		
+		notes = null;
 		startTime = 0;
 		running = false;
 		length = sequenceLength;
 		speedFactor = 1;
 		loopSequence = false;
-		timer = new Timer();
+		timestamped = false;
+		this.transport = transport;
+		slot = null;
+		stopped = true;
+		cursor = 0;
+		refused = -1;
+		ended = true;
+		completions = new DeadlineQueue<AudioEvent>();
+		noteCursor = 0;
+		noteOffs = new NoteOffQueue();
+	}
+
+	/**
+	 * Gets the transport that plays this sequence.
+	 * 
+	 * @return the transport
+	 */
+	public Transport getTransport() {
+		return transport;
 	}
 
 	/**
-	 * Gets the number of events in the sequence.
+	 * Keeps the notes of the sequence in a note store from now on. NoteEvents
+	 * already in the sequence stay where they are. Stops the sequence if
+	 * executing.
+	 * 
+	 * @param store - the store for notes, or null to keep notes as NoteEvents
+	 */
+	public synchronized void setNotes(NoteStore store) {
+		if (running)
+			stop();
+		notes = store;
+		noteCursor = 0;
+	}
+
+	/**
+	 * Gets the note store of the sequence.
+	 * 
+	 * @return the note store, or null if notes are kept as NoteEvents
+	 */
+	public synchronized NoteStore getNotes() {
+		return notes;
+	}
+
+	/**
+	 * Gets the number of events in the sequence, including the notes of the
+	 * note store.
 	 * 
 	 * @return number of events
 	 */
-	public int getEventCount() {
-		return sequence.size();
+	public synchronized int getEventCount() {
+		return sequence.size() + (notes == null ? 0 : notes.size());
 	}
 
 	/**
-	 * Adds an event to the sequence. Re-sorts the sequence after adding.
+	 * Adds an event to the sequence, in its place so the sequence stays sorted.
+	 * If the sequence is playing, an event added before the cursor waits for
+	 * the next pass. A NoteEvent is added to the note store, if there is one.
 	 * 
 	 * @param event - to add
 	 */
-	public void add(AudioEvent event) {
-		sequence.add(event);
-		sequence.sort();
+	public synchronized void add(AudioEvent event) {
+		if (notes != null && event instanceof NoteEvent) {
+			NoteEvent note = (NoteEvent) event;
+			addNote(note.getTime(), note.getPitch(), note.getDuration(), note.getChannel(), NoteStore.DEFAULT_VELOCITY);
+		} else if (sequence.insertSorted(event) < cursor) {
+			cursor++;
+		}
+	}
+
+	/**
+	 * Adds a note to the note store, in its place so it stays sorted. If the
+	 * sequence is playing, a note added before the cursor waits for the next
+	 * pass. The sequence must have a note store.
+	 * 
+	 * @param time     - time in tics
+	 * @param pitch    - pitch
+	 * @param duration - duration in tics
+	 * @param channel  - channel
+	 * @param velocity - velocity between 0 and 127
+	 */
+	public synchronized void addNote(int time, int pitch, int duration, int channel, int velocity) {
+		if (notes.add(time, pitch, duration, channel, velocity) < noteCursor)
+			noteCursor++;
 	}
 
 	/**
-	 * Adds all events from a collection to the sequence. Re-sorts the sequence.
+	 * Removes the first note with a given time and pitch from the note store. If
+	 * there is no such note, or no note store, nothing is changed.
+	 * 
+	 * @param time  - time in tics
+	 * @param pitch - pitch
+	 * @return true if a note was removed
+	 */
+	public synchronized boolean removeNote(int time, int pitch) {
+		int index = notes == null ? -1 : notes.indexOf(time, pitch);
+		if (index < 0)
+			return false;
+		notes.remove(index);
+		if (index < noteCursor)
+			noteCursor--;
+		return true;
+	}
+
+	/**
+	 * Adds all events from a collection to the sequence, merging them in so the
+	 * sequence stays sorted. If the sequence is playing, events added before
+	 * the cursor wait for the next pass.
 	 * 
 	 * @param events - to add
 	 */
-	public void add(BetterDynamicArray<AudioEvent> events) {
-		for (int i = 0; i < events.size(); i++) {
-			sequence.add(events.get(i));
+	public synchronized void add(BetterDynamicArray<AudioEvent> events) {
+		events = takeNotes(events);
+		int before = 0;
+		for (int i = 0; i < events.size() && cursor > 0; i++) {
+			if (cursor == sequence.size() || events.get(i).compareTo(sequence.get(cursor)) < 0)
+				before++;
 		}
-		sequence.sort();
+		sequence.mergeSorted(events);
+		cursor += before;
 	}
 
 	/**
 	 * Replaces the sequence with a new collection of events. Re-sorts the sequence.
+	 * If there is a note store, it is replaced by the NoteEvents of the collection.
 	 * 
 	 * @param newSequence to replace the current one
 	 */
-	public void updateSequence(BetterDynamicArray<AudioEvent> newSequence) {
-		sequence = newSequence;
+	public synchronized void updateSequence(BetterDynamicArray<AudioEvent> newSequence) {
+		if (notes != null)
+			notes.clear();
+		sequence = takeNotes(newSequence);
 		sequence.sort();
 	}
 
+	/**
+	 * Moves the NoteEvents of a collection into the note store, if there is one,
+	 * sorting the store once at the end.
+	 * 
+	 * @param events - the collection
+	 * @return the events that are not notes, or the collection itself if there
+	 *         is no note store
+	 */
+	private BetterDynamicArray<AudioEvent> takeNotes(BetterDynamicArray<AudioEvent> events) {
+		if (notes == null)
+			return events;
+		BetterDynamicArray<AudioEvent> others = new BetterDynamicArray<AudioEvent>();
+		int before = 0;
+		int next = noteCursor < notes.size() ? notes.getTime(noteCursor) : Integer.MAX_VALUE;
+		for (int i = 0; i < events.size(); i++) {
+			if (events.get(i) instanceof NoteEvent) {
+				NoteEvent note = (NoteEvent) events.get(i);
+				notes.append(note.getTime(), note.getPitch(), note.getDuration(), note.getChannel(),
+						NoteStore.DEFAULT_VELOCITY);
+				if (noteCursor > 0 && note.getTime() < next)
+					before++;
+			} else {
+				others.add(events.get(i));
+			}
+		}
+		notes.sort();
+		noteCursor += before;
+		return others;
+	}
+
 	/**
 	 * Removes the first event from the sequence that is equal to the given event.
 	 * Equality is determined by the equals method. If the event is not in the
-	 * sequence, nothing is changed.
+	 * sequence, nothing is changed. A NoteEvent is removed from the note store,
+	 * if there is one, by its time and pitch. If the sequence is playing, the
+	 * cursor stays on the event it was going to start next.
 	 * 
 	 * @param event - to remove
 	 */
-	public void remove(AudioEvent event) {
-		sequence.remove(event);
+	public synchronized void remove(AudioEvent event) {
+		if (notes != null && event instanceof NoteEvent) {
+			removeNote(event.getTime(), ((NoteEvent) event).getPitch());
+			return;
+		}
+		int index = sequence.remove(event);
+		if (index < 0)
+			return;
+		if (index < cursor)
+			cursor--;
+		if (index == refused)
+			refused = -1;
+		else if (index < refused)
+			refused--;
 	}
 
 	/**
 	 * Removes all events from the sequence. Note that this does not cancel
 	 * currently scheduled events.
 	 */
-	public void clear() {
+	public synchronized void clear() {
 		sequence.clear();
+		if (notes != null)
+			notes.clear();
 	}
 
 	/**
@@ -138,6 +319,17 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 		loopSequence = doLoop;
 	}
 
+	/**
+	 * Sets whether events are scheduled ahead on the synthesizer's clock. Events
+	 * that cannot be scheduled that way are still executed when they are due.
+	 * 
+	 * @param doTimestamp - true to schedule events ahead, false to execute every
+	 *                    event when it is due
+	 */
+	public void setTimestamped(boolean doTimestamp) {
+		timestamped = doTimestamp;
+	}
+
 	/**
 	 * The elapsed time is the time since the sequence last started. If the sequence
 	 * has not started or has ended, this returns zero. The time is in tics, which
@@ -147,51 +339,137 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 	 */
 	public double getElapsedTime() {
 		if (running)
-			return millisToTics(System.currentTimeMillis() - startTime);
+			return Math.max(0, transport.now() - startTime) / 1_000_000.0 * speedFactor;
 		return 0.0;
 	}
 
 	/**
-	 * Begins executing the sequence from the beginning.
+	 * Begins executing the sequence from the beginning. If the sequence is
+	 * already playing, it starts over, and events that are still sounding are
+	 * completed when they were due. To start several sequences in step, use
+	 * Transport.start instead.
 	 */
 	public void start() {
-		startTime = System.currentTimeMillis();
+		start(transport.now());
+	}
+
+	/**
+	 * Begins executing the sequence from the beginning as if it had started at
+	 * the given time on the clock of the transport.
+	 * 
+	 * @param origin - the start time in nanoseconds
+	 */
+	synchronized void start(long origin) {
+		startTime = origin;
 		running = true;
-		for (int i = 0; i < sequence.size(); i++) {
-			AudioEvent event = sequence.get(i);
-			timer.schedule(new EventExecutionTask(event, true), ticsToMillis(event.getTime()));
-			if (event instanceof NoteEvent)
-				timer.schedule(new EventExecutionTask(event, false),
-						ticsToMillis(event.getTime() + ((NoteEvent) event).getDuration()));
-			if (event instanceof TrackEvent)
-				timer.schedule(new EventExecutionTask(event, false),
-						ticsToMillis(event.getTime() + ((TrackEvent) event).getDuration()));
-		}
-		timer.schedule(new EndSignal(), ticsToMillis(length));
+		stopped = false;
+		cursor = 0;
+		refused = -1;
+		ended = false;
+		noteCursor = 0;
+		if (slot == null)
+			slot = transport.register(this);
+		transport.wake(slot, origin);
 	}
 
 	/**
 	 * Stops executing the sequence. This calls cancel on every event in the
 	 * sequence.
 	 */
-	public void stop() {
+	public synchronized void stop() {
+		if (!stopped)
+			silenceAhead(transport.now());
 		startTime = -1;
 		running = false;
-		timer.cancel();
-		timer = new Timer();
+		stopped = true;
+		completions.clear();
+		noteOffs.clear();
+		if (slot != null)
+			transport.wake(slot, transport.now());
 		for (int i = 0; i < sequence.size(); i++) {
 			sequence.get(i).cancel();
 		}
+		if (notes != null)
+			cancelNotes();
+	}
+
+	/**
+	 * Turns off every pitch that is used by a note of the note store, once for
+	 * each channel and pitch.
+	 */
+	private void cancelNotes() {
+		SimpleSynthesizer synthesizer = notes.getSynthesizer();
+		boolean[] cancelled = new boolean[16 * 128];
+		for (int i = 0; i < notes.size(); i++) {
+			int channel = notes.getChannel(i);
+			int pitch = notes.getPitch(i);
+			int key = channel * 128 + pitch;
+			if (channel < 0 || channel >= 16 || pitch < 0 || pitch >= 128) {
+				synthesizer.noteOff(channel, pitch);
+			} else if (!cancelled[key]) {
+				cancelled[key] = true;
+				synthesizer.noteOff(channel, pitch);
+			}
+		}
+	}
+
+	/**
+	 * Ends the notes that were scheduled ahead but have not started yet, right
+	 * when they start. These are the events before the cursor that are due
+	 * after now, and, just after the sequence looped early, the ones at the end
+	 * of the previous pass.
+	 * 
+	 * @param now - the time on the clock of the transport, in nanoseconds
+	 */
+	private void silenceAhead(long now) {
+		for (int i = cursor - 1; i >= 0; i--) {
+			long delay = startTime + ticsToNanos(sequence.get(i).getTime()) - now;
+			if (delay <= 0)
+				break;
+			sequence.get(i).completeAhead(delay);
+		}
+		long previous = startTime - ticsToNanos(length);
+		for (int i = sequence.size() - 1; i >= 0; i--) {
+			long delay = previous + ticsToNanos(sequence.get(i).getTime()) - now;
+			if (delay <= 0)
+				break;
+			sequence.get(i).completeAhead(delay);
+		}
+		if (notes == null)
+			return;
+		for (int i = noteCursor - 1; i >= 0; i--) {
+			long delay = startTime + ticsToNanos(notes.getTime(i)) - now;
+			if (delay <= 0)
+				break;
+			notes.getSynthesizer().noteOff(notes.getChannel(i), notes.getPitch(i), delay);
+		}
+		for (int i = notes.size() - 1; i >= 0; i--) {
+			long delay = previous + ticsToNanos(notes.getTime(i)) - now;
+			if (delay <= 0)
+				break;
+			notes.getSynthesizer().noteOff(notes.getChannel(i), notes.getPitch(i), delay);
+		}
 	}
 
 	/**
 	 * Provide an Iterator for events in the sequence. This allows using a for-each
-	 * loop over the sequence.
+	 * loop over the sequence. The notes of the note store are given as new
+	 * NoteEvents, in order with the other events.
 	 * 
 	 * @return an iterator for events in the sequence.
 	 */
 	public Iterator<AudioEvent> iterator() {
-		return new SequenceIterator();
+		return new SequenceIterator(true);
+	}
+
+	/**
+	 * Provides the events in the sequence that are not in the note store, for
+	 * when the notes are read from the store itself.
+	 * 
+	 * @return the events that are not in the note store
+	 */
+	public Iterable<AudioEvent> otherEvents() {
+		return () -> new SequenceIterator(false);
 	}
 
 	/**
@@ -215,62 +493,250 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 	}
 
 	/**
-	 * A TimerTask that executes or completes an event.
+	 * Converts a number of tics into nanoseconds depending on the current tempo.
+	 * 
+	 * @param tics - amount to convert
+	 * @return nanoseconds amount
+	 */
+	private long ticsToNanos(long tics) {
+		return (long) (tics * 1_000_000 / speedFactor);
+	}
+
+	/**
+	 * Gets how long after an event starts it is completed, for the events that
+	 * have a duration.
+	 * 
+	 * @param event - the event
+	 * @return its duration in tics, or -1 if it is never completed
+	 */
+	private static int durationOf(AudioEvent event) {
+		if (event instanceof NoteEvent)
+			return ((NoteEvent) event).getDuration();
+		if (event instanceof TrackEvent)
+			return ((TrackEvent) event).getDuration();
+		return -1;
+	}
+
+	/**
+	 * Handles everything that is due by the given time, and is called by the
+	 * transport. Each step finds whichever is due first of the event at the
+	 * cursor, the note at the note cursor, the earliest pending completion, and
+	 * the end of the sequence, and handles it while holding the sequencer's
+	 * lock, so a stop is never overtaken by an event that was about to execute.
+	 * At equal times, completions come before starts and both come before the
+	 * end, and notes start after other events except TrackEvents, as NoteEvents
+	 * are ordered. In timestamped mode, starts, and the end of a looping
+	 * sequence, are handled a lookahead early, except for events that refuse to
+	 * be scheduled ahead and notes whose synthesizer cannot schedule them.
+	 * 
+	 * @param now - the time on the clock of the transport, in nanoseconds
+	 * @return when the next thing is due, or -1 if the sequencer is stopped or
+	 *         a sequence that does not loop has nothing left to do
+	 */
+	synchronized long dispatch(long now) {
+		long lead = timestamped ? LOOKAHEAD_NANOS : 0;
+		boolean notesAhead = lead > 0 && notes != null && notes.getSynthesizer().canSchedule();
+		// a sequence only wraps early if the notes of its next pass can be sent early
+		boolean wrapAhead = lead > 0 && (notes == null || notesAhead);
+		while (!stopped) {
+			AudioEvent next = cursor < sequence.size() ? sequence.get(cursor) : null;
+			long startAt = next == null ? Long.MAX_VALUE : startTime + ticsToNanos(next.getTime());
+			long startDue = next == null || cursor == refused ? startAt : startAt - lead;
+			boolean hasNote = notes != null && noteCursor < notes.size();
+			long noteAt = hasNote ? startTime + ticsToNanos(notes.getTime(noteCursor)) : Long.MAX_VALUE;
+			long noteDue = hasNote && notesAhead ? noteAt - lead : noteAt;
+			long endAt = ended ? Long.MAX_VALUE : startTime + ticsToNanos(length);
+			long endDue = ended || !loopSequence || cursor == refused || !wrapAhead ? endAt : endAt - lead;
+			long completeAt = completions.isEmpty() ? Long.MAX_VALUE : completions.peekDeadline();
+			long offAt = noteOffs.isEmpty() ? Long.MAX_VALUE : noteOffs.peekDeadline();
+			long due = Math.min(Math.min(completeAt, offAt), Math.min(Math.min(startDue, noteDue), endDue));
+			if (due == Long.MAX_VALUE)
+				return -1;
+			if (due - now > 0)
+				return due;
+
+			if (completeAt == due) {
+				completions.poll().complete();
+			} else if (offAt == due) {
+				int key = noteOffs.poll();
+				notes.getSynthesizer().noteOff(key >>> 16, key & 0xFFFF, 0);
+			} else if (startDue == due && (noteDue != due || !(next instanceof TrackEvent))) {
+				startEvent(next, startAt);
+			} else if (noteDue == due) {
+				startNote(noteAt, notesAhead);
+			} else if (loopSequence) {
+				startTime = endAt;
+				cursor = 0;
+				refused = -1;
+				noteCursor = 0;
+			} else {
+				ended = true;
+				running = false;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Starts the event at the cursor, ahead of time if it can be scheduled, and
+	 * queues its completion.
+	 * 
+	 * @param next    - the event at the cursor
+	 * @param startAt - when it is due, in nanoseconds
 	 */
-	private class EventExecutionTask extends TimerTask {
-		private AudioEvent event;
-		private boolean isStarting;
+	private void startEvent(AudioEvent next, long startAt) {
+		int duration = durationOf(next);
+		long completeBy = startTime + ticsToNanos(next.getTime() + duration);
+		long sent = transport.now();
+		if (timestamped && startAt - sent > 0 && next.executeAhead(startAt - sent)) {
+			cursor++;
+			if (duration >= 0 && !next.completeAhead(completeBy - transport.now()))
+				completions.add(completeBy, next);
+		} else if (timestamped && startAt - sent > 0) {
+			refused = cursor;
+		} else {
+			cursor++;
+			next.execute();
+			if (duration >= 0)
+				completions.add(completeBy, next);
+		}
+	}
+
+	/**
+	 * Starts the note at the note cursor. Ahead of time, both its start and end
+	 * are handed to the synthesizer; otherwise it starts now and its end is
+	 * queued.
+	 * 
+	 * @param noteAt - when it is due, in nanoseconds
+	 * @param ahead  - true if the synthesizer can schedule it
+	 */
+	private void startNote(long noteAt, boolean ahead) {
+		int index = noteCursor++;
+		SimpleSynthesizer synthesizer = notes.getSynthesizer();
+		int channel = notes.getChannel(index);
+		int pitch = notes.getPitch(index);
+		long offAt = startTime + ticsToNanos(notes.getTime(index) + notes.getDuration(index));
+		long sent = transport.now();
+		if (ahead && noteAt - sent > 0) {
+			synthesizer.noteOn(channel, pitch, notes.getVelocity(index), noteAt - sent);
+			synthesizer.noteOff(channel, pitch, offAt - sent);
+		} else {
+			synthesizer.noteOn(channel, pitch, notes.getVelocity(index), 0);
+			noteOffs.add(offAt, channel << 16 | pitch & 0xFFFF);
+		}
+	}
+
+	/**
+	 * The notes of the note store that have started and are waiting to be
+	 * turned off, as a binary min-heap of deadlines with the channel and pitch
+	 * of each note packed into an int, so that nothing is allocated per note.
+	 */
+	private static class NoteOffQueue {
+		private long[] deadlines;
+		private int[] keys;
+		private int size;
+
+		/**
+		 * Creates an empty queue.
+		 */
+		public NoteOffQueue() {
+			deadlines = new long[16];
+			keys = new int[16];
+			size = 0;
+		}
 
 		/**
-		 * Creates a new task with the given state
+		 * Returns true if no notes are waiting.
 		 * 
-		 * @param event      - to execute
-		 * @param isStarting - true to call execute, false to call complete
+		 * @return true if the queue is empty
 		 */
-		public EventExecutionTask(AudioEvent event, boolean isStarting) {
-			this.event = event;
-			this.isStarting = isStarting;
+		public boolean isEmpty() {
+			return size == 0;
 		}
 
 		/**
-		 * Calls the event's execute or complete method.
+		 * Gets when the earliest note is due to be turned off. The queue must not
+		 * be empty.
+		 * 
+		 * @return the time in nanoseconds
 		 */
-		@Override
-		public void run() {
-			if (isStarting)
-				event.execute();
-			else
-				event.complete();
+		public long peekDeadline() {
+			return deadlines[0];
 		}
-	}
 
-	/**
-	 * A TimerTask that runs at the end of the sequence.
-	 */
-	private class EndSignal extends TimerTask {
 		/**
-		 * Restarts the sequence if looping.
+		 * Adds a note to turn off at the given time.
+		 * 
+		 * @param deadline - when to turn it off, in nanoseconds
+		 * @param key      - its channel and pitch
 		 */
-		@Override
-		public void run() {
-			if (loopSequence)
-				start();
-			else
-				running = false;
+		public void add(long deadline, int key) {
+			if (size == deadlines.length) {
+				deadlines = Arrays.copyOf(deadlines, size * 2);
+				keys = Arrays.copyOf(keys, size * 2);
+			}
+			int i = size++;
+			while (i > 0 && deadlines[(i - 1) / 2] - deadline > 0) {
+				deadlines[i] = deadlines[(i - 1) / 2];
+				keys[i] = keys[(i - 1) / 2];
+				i = (i - 1) / 2;
+			}
+			deadlines[i] = deadline;
+			keys[i] = key;
+		}
+
+		/**
+		 * Removes the earliest note. The queue must not be empty.
+		 * 
+		 * @return its channel and pitch
+		 */
+		public int poll() {
+			int first = keys[0];
+			size--;
+			long deadline = deadlines[size];
+			int key = keys[size];
+			int i = 0;
+			while (2 * i + 1 < size) {
+				int child = 2 * i + 1;
+				if (child + 1 < size && deadlines[child + 1] - deadlines[child] < 0)
+					child++;
+				if (deadline - deadlines[child] <= 0)
+					break;
+				deadlines[i] = deadlines[child];
+				keys[i] = keys[child];
+				i = child;
+			}
+			deadlines[i] = deadline;
+			keys[i] = key;
+			return first;
+		}
+
+		/**
+		 * Removes every waiting note.
+		 */
+		public void clear() {
+			size = 0;
 		}
 	}
 
 	/**
-	 * An Iterator for the events in the sequence
+	 * An Iterator for the events in the sequence, with the notes of the note
+	 * store merged in by time
 	 */
 	public class SequenceIterator implements Iterator<AudioEvent> {
 		private int nextIndex;
+		private int nextNote;
+		private final int noteCount;
 
 		/**
 		 * Constructs an iterator providing events in this sequence.
+		 * 
+		 * @param withNotes - true to include the notes of the note store
 		 */
-		public SequenceIterator() {
+		public SequenceIterator(boolean withNotes) {
 			nextIndex = 0;
+			nextNote = 0;
+			noteCount = withNotes && notes != null ? notes.size() : 0;
 		}
 
 		/**
@@ -279,7 +745,7 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 		 * @return true if there is a next available event
 		 */
 		public boolean hasNext() {
-			return nextIndex < sequence.size();
+			return nextIndex < sequence.size() || nextNote < noteCount;
 		}
 
 		/**
@@ -291,6 +757,15 @@ public class SimpleSequencer implements Iterable<AudioEvent> {
 		public AudioEvent next() {
 			if (!hasNext())
 				throw new NoSuchElementException();
+			if (nextNote < noteCount) {
+				AudioEvent other = nextIndex < sequence.size() ? sequence.get(nextIndex) : null;
+				int time = notes.getTime(nextNote);
+				if (other == null || time < other.getTime()
+						|| time == other.getTime() && other instanceof TrackEvent) {
+					nextNote++;
+					return notes.get(nextNote - 1);
+				}
+			}
 			nextIndex++;
 			return sequence.get(nextIndex - 1);
 		}
@@ -0,0 +1,119 @@
+package assign11;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for how SimpleSequencer keeps its place while the sequence is changed
+ * during playback. The sequencer is given a transport without threads and is
+ * dispatched by hand at chosen times, so the tests do not depend on timing.
+ *
+ * @author agent
+ * @version 2026-10-17
+ */
+public class SimpleSequencerTest {
+
+	private List<Integer> played;
+	private SimpleSequencer sequencer;
+
+	@BeforeEach
+	public void setUp() {
+		played = new ArrayList<Integer>();
+		sequencer = new SimpleSequencer(100, Transport.create(0));
+		sequencer.add(new Recorder(10));
+		sequencer.add(new Recorder(20));
+		sequencer.add(new Recorder(30));
+		sequencer.start(0);
+	}
+
+	@Test
+	public void addBeforeCursorWaitsForNextPass() {
+		sequencer.dispatch(millis(15));
+		sequencer.add(new Recorder(5));
+		sequencer.add(new Recorder(25));
+		sequencer.dispatch(millis(99));
+		assertEquals(List.of(10, 20, 25, 30), played);
+	}
+
+	@Test
+	public void addBeforeCursorPlaysOnNextPass() {
+		sequencer.setLoop(true);
+		sequencer.dispatch(millis(15));
+		sequencer.add(new Recorder(5));
+		sequencer.dispatch(millis(112));
+		assertEquals(List.of(10, 20, 30, 5, 10), played);
+	}
+
+	@Test
+	public void mergeAroundCursor() {
+		sequencer.dispatch(millis(20));
+		BetterDynamicArray<AudioEvent> events = new BetterDynamicArray<AudioEvent>();
+		events.add(new Recorder(35));
+		events.add(new Recorder(1));
+		events.add(new Recorder(20));
+		events.add(new Recorder(15));
+		sequencer.add(events);
+		sequencer.dispatch(millis(99));
+		assertEquals(List.of(10, 20, 30, 35), played);
+	}
+
+	@Test
+	public void removeBeforeCursorKeepsNextEvent() {
+		sequencer.dispatch(millis(15));
+		for (AudioEvent event : sequencer) {
+			if (event.getTime() == 10) {
+				sequencer.remove(event);
+			}
+		}
+		sequencer.dispatch(millis(99));
+		assertEquals(List.of(10, 20, 30), played);
+	}
+
+	@Test
+	public void removeAfterCursorIsNotPlayed() {
+		sequencer.dispatch(millis(15));
+		for (AudioEvent event : sequencer) {
+			if (event.getTime() == 20) {
+				sequencer.remove(event);
+			}
+		}
+		sequencer.dispatch(millis(99));
+		assertEquals(List.of(10, 30), played);
+	}
+
+	/**
+	 * Converts milliseconds after the start to nanoseconds on the clock of the
+	 * transport.
+	 *
+	 * @param millis - milliseconds
+	 * @return nanoseconds
+	 */
+	private static long millis(int millis) {
+		return millis * 1_000_000L;
+	}
+
+	/**
+	 * An event that records its time when it is executed.
+	 */
+	private class Recorder extends BetterDynamicArrayTest.Probe {
+
+		/**
+		 * Creates an event.
+		 *
+		 * @param time - time in tics
+		 */
+		Recorder(int time) {
+			super(time);
+		}
+
+		@Override
+		public void execute() {
+			played.add(getTime());
+		}
+	}
+}
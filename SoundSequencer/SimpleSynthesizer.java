@@ -3,9 +3,12 @@ package assign11;
 import java.util.ArrayList;
 
 import javax.sound.midi.Instrument;
+import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiChannel;
 import javax.sound.midi.MidiSystem;
 import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
 import javax.sound.midi.Synthesizer;
 
 /**
@@ -18,6 +21,11 @@ import javax.sound.midi.Synthesizer;
  * be used but will not produce any sound. In that case, It will appear 
  * to have 16 channels and one DEFAULT instrument.
  * 
+ * Notes can also be scheduled ahead of time. They are sent through the
+ * synthesizer's Receiver with a timestamp on its own clock, and the
+ * synthesizer renders them at that point in the audio, so they are not
+ * delayed by however late the calling thread wakes up.
+ * 
  * @author Eric Heisler
  * @version 2024-11-8
  */
@@ -25,6 +33,7 @@ public class SimpleSynthesizer {
 	private Synthesizer synth;
 	private MidiChannel[] channels;
 	private Instrument[] instruments;
+	private Receiver receiver;
 	
 	/**
 	 * Creates a new SimpleSynthesizer that uses the default soundbank.
@@ -44,6 +53,7 @@ public class SimpleSynthesizer {
 				instruments[i] = defaultInstrument;
 				channels[i].programChange(defaultInstrument.getPatch().getProgram());
 			}
+			receiver = synth.getReceiver();
 			
 		} catch (MidiUnavailableException e) {
 			System.out.println("Couldn't open a midi synthesizer. You may not have support on this machine.");
@@ -51,12 +61,14 @@ public class SimpleSynthesizer {
 			synth = null;
 			channels = null;
 			instruments = null;
+			receiver = null;
 			
 		} catch (ArrayIndexOutOfBoundsException e) {
 			System.out.println("There are no midi channels or instruments provided by the midi synthesizer. Can't make sound.");
 			synth = null;
 			channels = null;
 			instruments = null;
+			receiver = null;
 		}
 	}
 	
@@ -237,6 +249,92 @@ public class SimpleSynthesizer {
 		}
 	}
 	
+	/**
+	 * Returns true if notes can be scheduled ahead of time, which needs the
+	 * midi system and a synthesizer that takes timestamped messages.
+	 * 
+	 * @return true if noteOn and noteOff take a delay
+	 */
+	public boolean canSchedule() {
+		return receiver != null && synth.getMicrosecondPosition() >= 0;
+	}
+	
+	/**
+	 * Schedules a given pitch to begin playing on the given channel after a
+	 * delay, measured from now. If notes cannot be scheduled, it begins now.
+	 * 
+	 * This has no effect if the midi system is not available or if the
+	 * channel index is not valid.
+	 * 
+	 * @param channel - to use
+	 * @param pitch - to turn on
+	 * @param delayNanos - how long from now to turn it on, in nanoseconds
+	 */
+	public void noteOn(int channel, int pitch, long delayNanos) {
+		send(ShortMessage.NOTE_ON, channel, pitch, 100, delayNanos);
+	}
+	
+	/**
+	 * Schedules a given pitch to begin playing on the given channel with a
+	 * given velocity after a delay, measured from now. If notes cannot be
+	 * scheduled, it begins now.
+	 * 
+	 * This has no effect if the midi system is not available or if the
+	 * channel index is not valid.
+	 * 
+	 * @param channel - to use
+	 * @param pitch - to turn on
+	 * @param velocity - how hard the note is struck, between 0 and 127
+	 * @param delayNanos - how long from now to turn it on, in nanoseconds
+	 */
+	public void noteOn(int channel, int pitch, int velocity, long delayNanos) {
+		send(ShortMessage.NOTE_ON, channel, pitch, velocity, delayNanos);
+	}
+	
+	/**
+	 * Schedules a given pitch to stop playing on the given channel after a
+	 * delay, measured from now. If notes cannot be scheduled, it stops now.
+	 * 
+	 * This has no effect if the midi system is not available or if the
+	 * channel index is not valid.
+	 * 
+	 * @param channel - to use
+	 * @param pitch - to turn off
+	 * @param delayNanos - how long from now to turn it off, in nanoseconds
+	 */
+	public void noteOff(int channel, int pitch, long delayNanos) {
+		send(ShortMessage.NOTE_OFF, channel, pitch, 0, delayNanos);
+	}
+	
+	/**
+	 * Sends a message through the receiver, timestamped on the synthesizer's
+	 * clock. Messages with the same timestamp are played in the order they are
+	 * sent.
+	 * 
+	 * @param command - the midi command
+	 * @param channel - to use
+	 * @param data1 - first data byte
+	 * @param data2 - second data byte
+	 * @param delayNanos - how long from now to play it, in nanoseconds
+	 */
+	private void send(int command, int channel, int data1, int data2, long delayNanos) {
+		if(channels == null || channel < 0 || channel >= channels.length || channels[channel] == null)
+			return;
+		if(!canSchedule()) {
+			if(command == ShortMessage.NOTE_ON)
+				channels[channel].noteOn(data1, data2);
+			else
+				channels[channel].noteOff(data1);
+			return;
+		}
+		try {
+			long timeStamp = synth.getMicrosecondPosition() + Math.max(0, delayNanos) / 1000;
+			receiver.send(new ShortMessage(command, channel, data1, data2), timeStamp);
+		} catch (InvalidMidiDataException e) {
+			// like MidiChannel, ignore pitches out of range
+		}
+	}
+	
 	/**
 	 * Turns off all notes that are playing on all channels.
 	 */
@@ -45,11 +45,16 @@ public class SongFiles {
 				fileBuilder.append("\n");
 				fileBuilder.append(tracks.get(i).getLength());
 				fileBuilder.append("\n");
-				fileBuilder.append(tracks.get(i).getSequencer().getEventCount());
+				SimpleSequencer sequencer = tracks.get(i).getSequencer();
+				fileBuilder.append(sequencer.getEventCount());
 				fileBuilder.append("\n");
-				for (AudioEvent event : tracks.get(i).getSequencer()) {
+				for (AudioEvent event : sequencer.otherEvents()) {
 					fileBuilder.append(audioEventText(event));
 				}
+				NoteStore notes = sequencer.getNotes();
+				for (int j = 0; notes != null && j < notes.size(); j++) {
+					appendNoteText(fileBuilder, notes, j);
+				}
 			}
 
 			// Song block
@@ -162,6 +167,24 @@ public class SongFiles {
 		}
 	}
 
+	/**
+	 * Private helper method for appending the text of a note of a note store to
+	 * the file, in the same format as a NoteEvent block, reading the values
+	 * straight from the columns of the store.
+	 * 
+	 * @param fileBuilder - StringBuilder of the file
+	 * @param notes       - the note store
+	 * @param index       - position of the note
+	 */
+	private static void appendNoteText(StringBuilder fileBuilder, NoteStore notes, int index) {
+		fileBuilder.append("note\n");
+		fileBuilder.append(notes.getName()).append("\n");
+		fileBuilder.append(notes.getTime(index)).append("\n");
+		fileBuilder.append(notes.getChannel(index)).append("\n");
+		fileBuilder.append(notes.getPitch(index)).append("\n");
+		fileBuilder.append(notes.getDuration(index)).append("\n");
+	}
+
 	/**
 	 * Private helper method for creating text for AudioEvent blocks to put in the
 	 * file. Determines the instance of the AudioEvent and appends the appropriate
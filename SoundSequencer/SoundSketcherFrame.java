@@ -223,8 +223,10 @@ public class SoundSketcherFrame extends JFrame implements ActionListener, Change
 			if (playButton.isSelected()) {
 				playButton.setIcon(newStopIcon);
 				playButton.setToolTipText("Stops every Track Panel");
+				SimpleSequencer[] sequencers = new SimpleSequencer[trackPanels.size()];
 				for (int i = 0; i < trackPanels.size(); i++)
-					trackPanels.get(i).play();
+					sequencers[i] = trackPanels.get(i).getSequencer();
+				Transport.getShared().start(sequencers);
 			} else {
 				playButton.setIcon(newPlayIcon);
 				playButton.setToolTipText("Plays every Track Panel, not the Song Panel");
@@ -37,6 +37,8 @@ public class TrackEditor extends GridCanvas {
 		this.trackNumber = trackNumber;
 		this.synthesizer = synthesizer;
 		sequencer = new SimpleSequencer(30);
+		sequencer.setTimestamped(true);
+		sequencer.setNotes(new NoteStore("piano", synthesizer));
 		addMouseListener(this);
 		addMouseMotionListener(this);
 	}
@@ -129,18 +131,17 @@ public class TrackEditor extends GridCanvas {
 
 	/**
 	 * This method is used when loading a track from a file. It calls the clear
-	 * method, adds every NoteEvent as a cell, and updates the sequencer.
+	 * method, updates the sequencer, and adds every note of its note store as a
+	 * cell.
 	 * 
 	 * @param newEvents - given array of AudioEvent objects
 	 */
 	public void setEvents(BetterDynamicArray<AudioEvent> newEvents) {
 		clear();
-		for (int i = 0; i < newEvents.size(); i++) {
-			if (newEvents.get(i) instanceof NoteEvent)
-				addCell(((NoteEvent) newEvents.get(i)).getPitch(), newEvents.get(i).getTime(), 1,
-						((NoteEvent) newEvents.get(i)).getDuration());
-		}
 		sequencer.updateSequence(newEvents);
+		NoteStore notes = sequencer.getNotes();
+		for (int i = 0; i < notes.size(); i++)
+			addCell(notes.getPitch(i), notes.getTime(i), 1, notes.getDuration(i));
 	}
 
 	/**
@@ -205,30 +206,22 @@ public class TrackEditor extends GridCanvas {
 	@Override
 	public void onCellReleased(int row, int col, int rowSpan, int colSpan) {
 		if (colSpan > 0) {
-			NoteEvent newNoteEvent = new NoteEvent(col, "piano", trackNumber, colSpan, row, synthesizer);
-			sequencer.add(newNoteEvent);
+			sequencer.addNote(col, row, colSpan, trackNumber, NoteStore.DEFAULT_VELOCITY);
 			synthesizer.noteOff(trackNumber, pitch);
 		}
 
 	}
 
 	/**
-	 * Loops over the AudioEvents in the SimpleSequencer. If any event is a
-	 * NoteEvent with pitch equal to row and time equal to col, the AudioEvent is
-	 * removed from the sequencer.
+	 * Removes the note with pitch equal to row and time equal to col from the
+	 * note store of the SimpleSequencer, if there is one.
 	 * 
 	 * @param row - index of cell removed
 	 * @param col - index of cell removed
 	 */
 	@Override
 	public void onCellRemoved(int row, int col) {
-		for (AudioEvent audioEvent : sequencer) {
-			if (audioEvent instanceof NoteEvent) {
-				if (pitch == row && audioEvent.getTime() == col)
-					sequencer.remove(audioEvent);
-			}
-		}
-
+		sequencer.removeNote(col, row);
 	}
 
 }
@@ -0,0 +1,233 @@
+package assign11;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A transport that every SimpleSequencer registers with. It keeps one master
+ * clock for all of them, so sequencers started together share the same start
+ * time and stay aligned, and it dispatches their events from one small pool of
+ * threads, so the number of threads stays the same however many sequencers
+ * there are or how often they are started and stopped.
+ *
+ * Each playing sequencer has at most one entry in a queue ordered by when its
+ * next event is due. A dispatch thread parks until just before the earliest
+ * entry is due, spins for the rest, lets the sequencer handle everything that
+ * is due, and queues it again for its next event.
+ *
+ * @author agent
+ * @version 2026-10-17
+ */
+public class Transport {
+
+	/** How long before an entry is due a dispatch thread stops parking and spins. */
+	private static final long SPIN_NANOS = 200_000;
+
+	/** Number of dispatch threads of the shared transport. */
+	private static final int SHARED_THREADS = 2;
+
+	private static Transport shared;
+
+	private final long epoch;
+	private final ReentrantLock lock;
+	private final Condition changed;
+	private final DeadlineQueue<Slot> queue;
+	private volatile boolean shutdown;
+
+	/**
+	 * Creates a transport with its own clock and no dispatch threads yet.
+	 */
+	private Transport() {
+		epoch = System.nanoTime();
+		lock = new ReentrantLock();
+		changed = lock.newCondition();
+		queue = new DeadlineQueue<Slot>();
+		shutdown = false;
+	}
+
+	/**
+	 * Creates a transport with its own clock and dispatch threads. The threads
+	 * are daemons, so they do not keep the program running. A transport with no
+	 * threads only dispatches sequencers that are dispatched by hand.
+	 *
+	 * @param threads - number of dispatch threads
+	 * @return the transport, with its threads running
+	 */
+	public static Transport create(int threads) {
+		Transport transport = new Transport();
+		transport.startThreads(threads);
+		return transport;
+	}
+
+	/**
+	 * Gets the transport shared by every sequencer that is not given one.
+	 *
+	 * @return the shared transport
+	 */
+	public static synchronized Transport getShared() {
+		if (shared == null)
+			shared = create(SHARED_THREADS);
+		return shared;
+	}
+
+	/**
+	 * Starts the dispatch threads. This is only done once the transport is fully
+	 * constructed, since the threads use it right away.
+	 *
+	 * @param count - number of dispatch threads
+	 */
+	private void startThreads(int count) {
+		for (int i = 0; i < count; i++) {
+			Thread thread = new Thread(this::dispatch, "Transport-" + i);
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MAX_PRIORITY);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Stops the dispatch threads once they finish what they are dispatching.
+	 * Sequencers still queued are not dispatched again. The shared transport is
+	 * never shut down.
+	 */
+	public void shutdown() {
+		lock.lock();
+		try {
+			shutdown = true;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads the master clock.
+	 *
+	 * @return nanoseconds since the transport was created
+	 */
+	public long now() {
+		return System.nanoTime() - epoch;
+	}
+
+	/**
+	 * Starts several sequencers from the beginning at exactly the same time on
+	 * the master clock, so their events line up.
+	 *
+	 * @param sequencers - the sequencers to start, which must use this transport
+	 */
+	public void start(SimpleSequencer... sequencers) {
+		long origin = now();
+		for (SimpleSequencer sequencer : sequencers)
+			sequencer.start(origin);
+	}
+
+	/**
+	 * Registers a sequencer, giving it the slot it is queued with.
+	 *
+	 * @param sequencer - the sequencer
+	 * @return its slot
+	 */
+	Slot register(SimpleSequencer sequencer) {
+		return new Slot(sequencer);
+	}
+
+	/**
+	 * Asks for a sequencer to be dispatched at the given time on the master
+	 * clock, replacing the time it was queued for. A sequencer that is being
+	 * dispatched right now is dispatched again right after.
+	 *
+	 * @param slot     - the slot of the sequencer
+	 * @param deadline - when to dispatch it
+	 */
+	void wake(Slot slot, long deadline) {
+		lock.lock();
+		try {
+			if (slot.dispatching) {
+				slot.rewake = true;
+			} else {
+				queue.remove(slot);
+				queue.add(deadline, slot);
+				changed.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Dispatches sequencers as they come due, until the transport is shut down.
+	 * An interrupt only ends the thread if the transport is shutting down, since
+	 * the thread is shared by every sequencer on the transport.
+	 */
+	private void dispatch() {
+		while (!shutdown) {
+			Slot slot;
+			long deadline;
+			lock.lock();
+			try {
+				while (!shutdown && (queue.isEmpty() || queue.peekDeadline() - now() > SPIN_NANOS)) {
+					if (queue.isEmpty())
+						changed.await();
+					else
+						changed.await(queue.peekDeadline() - now() - SPIN_NANOS, TimeUnit.NANOSECONDS);
+				}
+				if (shutdown)
+					return;
+				deadline = queue.peekDeadline();
+				slot = queue.poll();
+				slot.dispatching = true;
+			} catch (InterruptedException e) {
+				continue;
+			} finally {
+				lock.unlock();
+			}
+
+			while (deadline - now() > 0)
+				Thread.onSpinWait();
+			long next = -1;
+			try {
+				next = slot.sequencer.dispatch(now());
+			} catch (RuntimeException e) {
+				// the sequencer is dropped until it is woken again
+				e.printStackTrace();
+			} finally {
+				lock.lock();
+				try {
+					slot.dispatching = false;
+					if (slot.rewake) {
+						slot.rewake = false;
+						next = now();
+					}
+					if (next >= 0) {
+						queue.add(next, slot);
+						changed.signal();
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * The place of one sequencer in the transport, guarded by the transport's
+	 * lock.
+	 */
+	static class Slot {
+		private final SimpleSequencer sequencer;
+		private boolean dispatching;
+		private boolean rewake;
+
+		/**
+		 * Creates the slot of a sequencer.
+		 *
+		 * @param sequencer - the sequencer
+		 */
+		private Slot(SimpleSequencer sequencer) {
+			this.sequencer = sequencer;
+			dispatching = false;
+			rewake = false;
+		}
+	}
+}
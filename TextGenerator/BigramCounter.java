@@ -0,0 +1,704 @@
+package comprehensive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts how often each word follows each context in a run of text, where a
+ * context is any of the last one to order words. Words are numbered in the
+ * order they are first seen, contexts are packed into longs by ContextKeys and
+ * numbered in turn, and every (context number, next word) pair is counted in
+ * place in a primitive hash map. In an order 1 counter every context is a
+ * single word and its number is simply the number of the word, so each pair
+ * is counted with a single probe of the map and no table of contexts is kept.
+ *
+ * The first and last words of the run are remembered, so the counts of two
+ * consecutive runs can be combined into exactly the counts of the whole text,
+ * including the contexts that span from one run into the next.
+ *
+ * A counter can also be limited to a memory budget, for text with more
+ * distinct pairs than fit. Every pair is then tallied in a count-min sketch of
+ * fixed size, and only counted exactly once the sketch has seen it a minimum
+ * number of times. When the exact counts fill their share of the budget, the
+ * rarest pairs are dropped, so what is left are the frequent pairs with counts
+ * that are never too low and rarely much too high.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+class BigramCounter {
+
+	/** Files are split in halves until the pieces are no larger than this. */
+	private static final long CHUNK_SIZE = 1 << 23;
+
+	/**
+	 * Bytes of a budget taken per slot of the pair table, which covers the slot,
+	 * its share of the context table, and the copies made while pruning.
+	 */
+	private static final int BYTES_PER_SLOT = 64;
+
+	/**
+	 * Pairs seen this many times or more share the last bucket of the histogram
+	 * that prune picks its floor from. The histogram stops sooner if the budget
+	 * holds fewer pairs, so it is never larger than the pair table.
+	 */
+	private static final int MAX_FLOOR = 1 << 16;
+
+	private final int order;
+
+	private WordArena words;
+
+	private LongIntMap contexts;
+	private long[] contextKeys;
+	private LongIntMap pairs;
+
+	private int[] firstWords;
+	private int firstCount;
+	private long window;
+
+	// Null unless the counter is limited to a memory budget
+	private final CountMinSketch sketch;
+	private final int minCount;
+	private final int maxPairs;
+	private long offered;
+
+	/**
+	 * Creates a counter that has not seen any words.
+	 *
+	 * @param order - number of words in the longest context
+	 */
+	BigramCounter(int order) {
+		this(order, null, 1, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a counter that has not seen any words and keeps its pair counts
+	 * within a memory budget. A quarter of the budget goes to the sketch and the
+	 * rest to the exact counts. The vocabulary is not part of the budget.
+	 *
+	 * @param order        - number of words in the longest context
+	 * @param minCount     - fewest times a pair has to be seen to be counted
+	 * @param memoryBudget - bytes the pair counts may take
+	 * @throws IllegalArgumentException if minCount is less than one or the budget
+	 *                                  is too small to hold any pairs
+	 */
+	BigramCounter(int order, int minCount, long memoryBudget) {
+		this(order, new CountMinSketch(memoryBudget / 4), minCount,
+				Integer.highestOneBit((int) Math.min(memoryBudget / 4 * 3 / BYTES_PER_SLOT, 1 << 30)) / 2);
+		if (minCount < 1 || maxPairs < 8) {
+			throw new IllegalArgumentException("Invalid minimum count or memory budget.");
+		}
+	}
+
+	/**
+	 * Creates a counter that has not seen any words.
+	 *
+	 * @param order    - number of words in the longest context
+	 * @param sketch   - the approximate counts of pairs, or null to count exactly
+	 * @param minCount - fewest times a pair has to be seen to be counted
+	 * @param maxPairs - most pairs counted exactly before the rarest are dropped
+	 */
+	private BigramCounter(int order, CountMinSketch sketch, int minCount, int maxPairs) {
+		ContextKeys.checkOrder(order);
+		this.order = order;
+		this.sketch = sketch;
+		this.minCount = minCount;
+		this.maxPairs = maxPairs;
+		words = new WordArena();
+		contexts = new LongIntMap(16);
+		contextKeys = new long[16];
+		pairs = new LongIntMap(sketch == null ? 16 : maxPairs);
+		firstWords = new int[order];
+		firstCount = 0;
+		window = 0;
+		offered = 0;
+	}
+
+	/**
+	 * Counts the words in a range of a file on the calling thread.
+	 *
+	 * @param channel - the file to read
+	 * @param start   - position of the first byte to read
+	 * @param end     - position just past the last byte to read
+	 * @param order   - number of words in the longest context
+	 * @return the counts of the range
+	 * @throws IOException if the file cannot be read
+	 */
+	static BigramCounter count(FileChannel channel, long start, long end, int order) throws IOException {
+		BigramCounter counter = new BigramCounter(order);
+		WordTokenizer.tokenize(channel, start, end, counter::add);
+		return counter;
+	}
+
+	/**
+	 * Counts the words of a whole file on the calling thread, keeping the pair
+	 * counts within a memory budget.
+	 *
+	 * @param channel      - the file to read
+	 * @param order        - number of words in the longest context
+	 * @param minCount     - fewest times a pair has to be seen to be counted
+	 * @param memoryBudget - bytes the pair counts may take
+	 * @return the counts of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	static BigramCounter count(FileChannel channel, int order, int minCount, long memoryBudget)
+			throws IOException {
+		BigramCounter counter = new BigramCounter(order, minCount, memoryBudget);
+		WordTokenizer.tokenize(channel, 0, channel.size(), counter::add);
+		return counter;
+	}
+
+	/**
+	 * Counts the words of a whole file on a fork/join pool. The file is split into
+	 * byte ranges that begin and end between words, each range is counted
+	 * separately, and the partial counts are combined in file order, so the
+	 * result is identical to counting the file from start to end.
+	 *
+	 * @param channel - the file to read
+	 * @param pool    - the pool that counts the ranges
+	 * @param order   - number of words in the longest context
+	 * @return the counts of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	static BigramCounter countInParallel(FileChannel channel, ForkJoinPool pool, int order) throws IOException {
+		return countInParallel(channel, pool, order, CHUNK_SIZE);
+	}
+
+	/**
+	 * Counts the words of a whole file on a fork/join pool, splitting it into
+	 * ranges no larger than the given size where the words allow.
+	 *
+	 * @param channel   - the file to read
+	 * @param pool      - the pool that counts the ranges
+	 * @param order     - number of words in the longest context
+	 * @param chunkSize - ranges are split in halves until no larger than this
+	 * @return the counts of the file
+	 * @throws IOException if the file cannot be read
+	 */
+	static BigramCounter countInParallel(FileChannel channel, ForkJoinPool pool, int order, long chunkSize)
+			throws IOException {
+		try {
+			return pool.invoke(new RangeTask(channel, 0, channel.size(), order, chunkSize));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Creates a counter that has not counted anything yet but carries on from the
+	 * end of this text, so words added to it or joined onto it follow the last
+	 * words seen here.
+	 *
+	 * @return an empty counter ending in the same words as this one
+	 */
+	BigramCounter continuation() {
+		BigramCounter next = new BigramCounter(order);
+		for (int back = ContextKeys.length(window, order) - 1; back >= 0; back--) {
+			int id = next.intern(words, ContextKeys.word(window, back, order));
+			next.window = ContextKeys.append(next.window, id, order);
+		}
+		return next;
+	}
+
+	/**
+	 * Counts the words of many files on a fork/join pool. The list is split in
+	 * halves until each piece is a single file, large files are split further
+	 * into byte ranges, and the counts are combined in list order, so the result
+	 * does not depend on which file finishes first.
+	 *
+	 * @param files - the files to read, in order
+	 * @param join  - true if the last words of each file run into the first words
+	 *              of the next, as if the files were one text
+	 * @param pool  - the pool that counts the files
+	 * @param order - number of words in the longest context
+	 * @return the counts of all the files
+	 * @throws IOException if a file cannot be read
+	 */
+	static BigramCounter countFiles(List<File> files, boolean join, ForkJoinPool pool, int order)
+			throws IOException {
+		if (files.isEmpty()) {
+			return new BigramCounter(order);
+		}
+		try {
+			return pool.invoke(new FilesTask(files, 0, files.size(), join, order));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Counts the given word as following each context of the words before it.
+	 * The word is looked up by its bytes, and copied only if it is new.
+	 *
+	 * @param word   - array holding the next word of the text from index zero
+	 * @param length - number of bytes in the word
+	 */
+	void add(byte[] word, int length) {
+		int id = intern(word, length);
+		if (firstCount < order) {
+			firstWords[firstCount++] = id;
+		}
+		int contextLength = ContextKeys.length(window, order);
+		for (int i = 1; i <= contextLength; i++) {
+			count(ContextKeys.suffix(window, i, order), id);
+		}
+		window = ContextKeys.append(window, id, order);
+	}
+
+	/**
+	 * Finds the number of a word, numbering it if it is new.
+	 *
+	 * @param word   - array holding the word from index zero
+	 * @param length - number of bytes in the word
+	 * @return the number of the word
+	 * @throws IllegalStateException if there are too many words to pack into
+	 *                               contexts of this order
+	 */
+	private int intern(byte[] word, int length) {
+		return checkSize(words.intern(word, 0, length));
+	}
+
+	/**
+	 * Finds the number of a word of another counter, numbering it if it is new.
+	 *
+	 * @param other - the words of the other counter
+	 * @param id    - number of the word in the other counter
+	 * @return the number of the word here
+	 * @throws IllegalStateException if there are too many words to pack into
+	 *                               contexts of this order
+	 */
+	private int intern(WordArena other, int id) {
+		return checkSize(words.intern(other, id));
+	}
+
+	/**
+	 * Checks that the words seen so far can still be packed into contexts.
+	 *
+	 * @param id - number of the word just looked up
+	 * @return the same number
+	 * @throws IllegalStateException if there are too many words to pack into
+	 *                               contexts of this order
+	 */
+	private int checkSize(int id) {
+		if (words.size() > ContextKeys.maxWords(order)) {
+			throw new IllegalStateException("Too many distinct words for an order " + order + " model.");
+		}
+		return id;
+	}
+
+	/**
+	 * Adds one to the number of times a word followed a context.
+	 *
+	 * @param context - the packed context
+	 * @param next    - the number of the word that followed it
+	 */
+	private void count(long context, int next) {
+		if (sketch == null) {
+			pairs.add((long) number(context) << 32 | next, 1);
+		} else {
+			countWithinBudget(context, next);
+		}
+	}
+
+	/**
+	 * Adds one to the number of times a word followed a context, in a counter
+	 * limited to a memory budget. The pair is tallied in the sketch, and counted
+	 * exactly if it already is or the sketch has now seen it minCount times, in
+	 * which case it starts at the sketch's estimate.
+	 *
+	 * @param context - the packed context
+	 * @param next    - the number of the word that followed it
+	 */
+	private void countWithinBudget(long context, int next) {
+		offered++;
+		int estimate = sketch.add(context * 0x9E3779B97F4A7C15L + next);
+		int number = order == 1 ? ContextKeys.word(context, 0, order) : contexts.get(context);
+		if (number >= 0 && pairs.addIfPresent((long) number << 32 | next, 1)) {
+			return;
+		}
+		if (estimate >= minCount) {
+			if (pairs.size() >= maxPairs) {
+				prune();
+			}
+			pairs.add((long) number(context) << 32 | next, estimate);
+		}
+	}
+
+	/**
+	 * Makes room in the pair counts by dropping every pair seen fewer times than
+	 * a floor, picked from a histogram of the counts as the lowest floor that
+	 * leaves the table at most half full. If the pairs past the last bucket do
+	 * not fit on their own, their counts are sorted and the lowest are dropped
+	 * until they do. The contexts that are left are numbered again, so the ones
+	 * whose pairs were all dropped take no room either. A dropped pair is counted
+	 * again if it comes back often enough, starting from what the sketch
+	 * remembers of it.
+	 */
+	private void prune() {
+		// Word contexts keep their numbers, so only the pairs need to be dropped
+		boolean renumber = order > 1;
+		int last = Math.min(MAX_FLOOR, maxPairs);
+		int[] histogram = new int[last + 1];
+		for (int slot = 0; slot < pairs.capacity(); slot++) {
+			if (pairs.keyAt(slot) >= 0) {
+				histogram[Math.min(pairs.valueAt(slot), last)]++;
+			}
+		}
+		int floor = 0;
+		int kept = pairs.size();
+		for (; kept > maxPairs / 2 && floor < last; floor++) {
+			kept -= histogram[floor];
+		}
+		// Pairs with the floor count are only limited when the last bucket is too full
+		int ties = Integer.MAX_VALUE;
+		if (kept > maxPairs / 2) {
+			int[] counts = new int[kept];
+			int found = 0;
+			for (int slot = 0; slot < pairs.capacity(); slot++) {
+				if (pairs.keyAt(slot) >= 0 && pairs.valueAt(slot) >= floor) {
+					counts[found++] = pairs.valueAt(slot);
+				}
+			}
+			Arrays.sort(counts);
+			floor = counts[kept - maxPairs / 2];
+			int above = kept - maxPairs / 2;
+			while (above < kept && counts[above] == floor) {
+				above++;
+			}
+			ties = maxPairs / 2 - (kept - above);
+		}
+
+		LongIntMap keptContexts = new LongIntMap(16);
+		long[] keptKeys = new long[16];
+		LongIntMap keptPairs = new LongIntMap(maxPairs);
+		int[] contextMap = new int[renumber ? contexts.size() : 0];
+		Arrays.fill(contextMap, -1);
+		for (int slot = 0; slot < pairs.capacity(); slot++) {
+			long pair = pairs.keyAt(slot);
+			if (pair < 0 || pairs.valueAt(slot) < floor || (pairs.valueAt(slot) == floor && ties-- <= 0)) {
+				continue;
+			}
+			int context = (int) (pair >>> 32);
+			if (renumber && contextMap[context] < 0) {
+				contextMap[context] = keptContexts.size();
+				keptContexts.putIfAbsent(contextKeys[context], contextMap[context]);
+				if (contextMap[context] == keptKeys.length) {
+					keptKeys = Arrays.copyOf(keptKeys, keptKeys.length * 2);
+				}
+				keptKeys[contextMap[context]] = contextKeys[context];
+			}
+			int number = renumber ? contextMap[context] : context;
+			keptPairs.add((long) number << 32 | (int) pair, pairs.valueAt(slot));
+		}
+		if (renumber) {
+			contexts = keptContexts;
+			contextKeys = keptKeys;
+		}
+		pairs = keptPairs;
+	}
+
+	/**
+	 * Returns the fraction of the pairs counted within a memory budget that were
+	 * dropped, weighting each pair by how often it was seen. This is the
+	 * probability mass the dropped pairs would have had. Since kept pairs may be
+	 * counted a little high, it can come out slightly low.
+	 *
+	 * @return the fraction from 0 to 1, or 0 if the counter has no budget
+	 */
+	double getPrunedMass() {
+		if (offered == 0) {
+			return 0;
+		}
+		long kept = 0;
+		for (int slot = 0; slot < pairs.capacity(); slot++) {
+			if (pairs.keyAt(slot) >= 0) {
+				kept += pairs.valueAt(slot);
+			}
+		}
+		return Math.max(offered - kept, 0) / (double) offered;
+	}
+
+	/**
+	 * Finds the number of a context, numbering it if it is new.
+	 *
+	 * @param context - the packed context
+	 * @return the number of the context
+	 */
+	private int number(long context) {
+		if (order == 1) {
+			return ContextKeys.word(context, 0, order);
+		}
+		int number = contexts.putIfAbsent(context, contexts.size());
+		if (number < 0) {
+			number = contexts.size() - 1;
+			if (number == contextKeys.length) {
+				contextKeys = Arrays.copyOf(contextKeys, number * 2);
+			}
+			contextKeys[number] = context;
+		}
+		return number;
+	}
+
+	/**
+	 * Adds the counts of the text that follows this text. If join is true, the
+	 * contexts that end in this text and continue into the following text are
+	 * counted too. The other counter should not be used afterward.
+	 *
+	 * @param following - counts of the text after this one
+	 * @param join      - true if the two texts run into each other
+	 * @throws IllegalArgumentException if the counters are of different orders
+	 */
+	void addAll(BigramCounter following, boolean join) {
+		if (following.order != order) {
+			throw new IllegalArgumentException("Cannot combine counts of different orders.");
+		}
+
+		int[] idMap = new int[following.words.size()];
+		for (int id = 0; id < idMap.length; id++) {
+			idMap[id] = intern(following.words, id);
+		}
+
+		// Count the contexts that start here and end in the first words over there
+		long joined = window;
+		if (join) {
+			for (int j = 0; j < following.firstCount; j++) {
+				int next = idMap[following.firstWords[j]];
+				int length = ContextKeys.length(joined, order);
+				for (int i = j + 1; i <= length; i++) {
+					count(ContextKeys.suffix(joined, i, order), next);
+				}
+				joined = ContextKeys.append(joined, next, order);
+			}
+		}
+
+		int[] contextMap = new int[following.getContextCount()];
+		for (int number = 0; number < contextMap.length; number++) {
+			contextMap[number] = number(remap(following.getContext(number), idMap));
+		}
+		for (int slot = 0; slot < following.pairs.capacity(); slot++) {
+			long pair = following.pairs.keyAt(slot);
+			if (pair >= 0) {
+				int context = contextMap[(int) (pair >>> 32)];
+				pairs.add((long) context << 32 | idMap[(int) pair], following.pairs.valueAt(slot));
+			}
+		}
+
+		if (firstCount == 0 || (join && firstCount < order)) {
+			for (int j = 0; j < following.firstCount && firstCount < order; j++) {
+				firstWords[firstCount++] = idMap[following.firstWords[j]];
+			}
+		}
+		if (join && ContextKeys.length(following.window, order) < order) {
+			window = joined;
+		} else if (following.window != 0) {
+			window = remap(following.window, idMap);
+		}
+	}
+
+	/**
+	 * Rewrites a context in terms of different word numbers.
+	 *
+	 * @param context - the packed context
+	 * @param idMap   - the new number of every old word number
+	 * @return the same context with the new numbers
+	 */
+	private long remap(long context, int[] idMap) {
+		long result = 0;
+		for (int back = ContextKeys.length(context, order) - 1; back >= 0; back--) {
+			result = ContextKeys.append(result, idMap[ContextKeys.word(context, back, order)], order);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if no pairs have been counted.
+	 *
+	 * @return true if nothing has been counted
+	 */
+	boolean isEmpty() {
+		return pairs.size() == 0;
+	}
+
+	/**
+	 * Returns true if no words have been added or joined onto this counter, so
+	 * it does not carry on from any text.
+	 *
+	 * @return true if no words have been seen
+	 */
+	boolean isUnused() {
+		return words.size() == 0;
+	}
+
+	/**
+	 * Gets the number of words in the longest context.
+	 *
+	 * @return the order
+	 */
+	int getOrder() {
+		return order;
+	}
+
+	/**
+	 * Gets every word seen, numbered in the order they were first seen.
+	 *
+	 * @return the words
+	 */
+	WordArena getWords() {
+		return words;
+	}
+
+	/**
+	 * Returns the number of distinct contexts seen. In an order 1 counter it is
+	 * the number of words, whether or not each was followed by anything.
+	 *
+	 * @return the number of contexts
+	 */
+	int getContextCount() {
+		return order == 1 ? words.size() : contexts.size();
+	}
+
+	/**
+	 * Gets a context by its number.
+	 *
+	 * @param number - the number of the context
+	 * @return the context, packed with word numbers
+	 */
+	long getContext(int number) {
+		return order == 1 ? ContextKeys.append(0, number, order) : contextKeys[number];
+	}
+
+	/**
+	 * Gets the counted pairs, keyed by (context number << 32 | next word number).
+	 *
+	 * @return the pair counts
+	 */
+	LongIntMap getPairs() {
+		return pairs;
+	}
+
+	/**
+	 * Counts the words of one byte range of a file, splitting the range in two
+	 * and counting the halves in parallel while it is larger than a chunk.
+	 */
+	private static class RangeTask extends RecursiveTask<BigramCounter> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient FileChannel channel;
+		private final long start;
+		private final long end;
+		private final int order;
+		private final long chunkSize;
+
+		/**
+		 * Creates a task for the given range.
+		 *
+		 * @param channel   - the file to read
+		 * @param start     - position of the first byte of the range
+		 * @param end       - position just past the last byte of the range
+		 * @param order     - number of words in the longest context
+		 * @param chunkSize - ranges no larger than this are counted without
+		 *                  splitting
+		 */
+		RangeTask(FileChannel channel, long start, long end, int order, long chunkSize) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.order = order;
+			this.chunkSize = chunkSize;
+		}
+
+		/**
+		 * Counts the range, combining the counts of both halves in order.
+		 *
+		 * @return the counts of the range
+		 */
+		@Override
+		protected BigramCounter compute() {
+			try {
+				if (end - start <= chunkSize) {
+					return count(channel, start, end, order);
+				}
+
+				long middle = WordTokenizer.nextWordBoundary(channel, start + (end - start) / 2, end);
+				if (middle >= end) {
+					// a word runs past the end from the midpoint, so split before it
+					middle = WordTokenizer.previousWordBoundary(channel, start + (end - start) / 2, start);
+				}
+				if (middle <= start) {
+					// the whole range is one word
+					return count(channel, start, end, order);
+				}
+				RangeTask second = new RangeTask(channel, middle, end, order, chunkSize);
+				second.fork();
+				BigramCounter counter = new RangeTask(channel, start, middle, order, chunkSize).compute();
+				counter.addAll(second.join(), true);
+				return counter;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Counts the files of one part of a list, splitting the part in two and
+	 * counting the halves in parallel while it holds more than one file.
+	 */
+	private static class FilesTask extends RecursiveTask<BigramCounter> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<File> files;
+		private final int from;
+		private final int to;
+		private final boolean join;
+		private final int order;
+
+		/**
+		 * Creates a task for the files from index from up to index to.
+		 *
+		 * @param files - every file, in order
+		 * @param from  - index of the first file of the part
+		 * @param to    - index just past the last file of the part
+		 * @param join  - true if consecutive files run into each other
+		 * @param order - number of words in the longest context
+		 */
+		FilesTask(List<File> files, int from, int to, boolean join, int order) {
+			this.files = files;
+			this.from = from;
+			this.to = to;
+			this.join = join;
+			this.order = order;
+		}
+
+		/**
+		 * Counts the files, combining the counts of both halves in order.
+		 *
+		 * @return the counts of the files
+		 */
+		@Override
+		protected BigramCounter compute() {
+			if (to - from == 1) {
+				try (FileChannel channel = FileChannel.open(files.get(from).toPath(), StandardOpenOption.READ)) {
+					return new RangeTask(channel, 0, channel.size(), order, CHUNK_SIZE).compute();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			int middle = (from + to) >>> 1;
+			FilesTask second = new FilesTask(files, middle, to, join, order);
+			second.fork();
+			BigramCounter counter = new FilesTask(files, from, middle, join, order).compute();
+			counter.addAll(second.join(), join);
+			return counter;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package comprehensive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for BigramCounter, checking that counting a file in parallel gives
+ * the same counts as counting it from start to end, and that counting within
+ * a budget stays within it.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+public class BigramCounterTest {
+
+	@Test
+	public void countInParallelSplitsAroundLongWord() throws IOException {
+		StringBuilder text = new StringBuilder("one two ");
+		text.append("a".repeat(10_000));
+		text.append(" three four");
+		assertParallelMatches(text.toString(), 1, 64);
+		assertParallelMatches(text.toString(), 2, 64);
+	}
+
+	@Test
+	public void countInParallelOfOneLongWord() throws IOException {
+		assertParallelMatches("x".repeat(10_000), 1, 64);
+		assertParallelMatches("x".repeat(10_000), 3, 64);
+	}
+
+	@Test
+	public void countInParallelMatchesSequentialCount() throws IOException {
+		String text = randomText(new Random(17), 20_000);
+		for (int order = 1; order <= ContextKeys.MAX_ORDER; order++) {
+			assertParallelMatches(text, order, 256);
+		}
+	}
+
+	@Test
+	public void countFilesJoinedMatchesOneFile() throws IOException {
+		Random random = new Random(29);
+		List<String> parts = List.of(randomText(random, 3_000), randomText(random, 5), randomText(random, 4_000));
+		List<File> files = new ArrayList<File>();
+		File whole = Files.createTempFile("counter", ".txt").toFile();
+		try {
+			for (String part : parts) {
+				File file = Files.createTempFile("counter", ".txt").toFile();
+				Files.writeString(file.toPath(), part, StandardCharsets.UTF_8);
+				files.add(file);
+			}
+			Files.writeString(whole.toPath(), String.join(" ", parts), StandardCharsets.UTF_8);
+			for (int order = 1; order <= ContextKeys.MAX_ORDER; order++) {
+				try (RandomAccessFile input = new RandomAccessFile(whole, "r")) {
+					BigramCounter sequential = BigramCounter.count(input.getChannel(), 0, whole.length(), order);
+					BigramCounter joined = BigramCounter.countFiles(files, true, ForkJoinPool.commonPool(), order);
+					assertEquals(counts(sequential), counts(joined), "order " + order + " counts");
+				}
+			}
+		} finally {
+			whole.delete();
+			for (File file : files) {
+				file.delete();
+			}
+		}
+	}
+
+	@Test
+	public void countWithinBudgetDropsPairsPastTheLastBucket() {
+		// A budget of 2048 bytes holds 8 pairs, and each of the 20 pairs is seen
+		// more often than the histogram of prune goes
+		BigramCounter counter = new BigramCounter(1, 1, 2048);
+		for (int i = 0; i < 20 * 100; i++) {
+			byte[] word = ("w" + i % 20).getBytes(StandardCharsets.UTF_8);
+			counter.add(word, word.length);
+		}
+		assertTrue(counter.getPairs().size() <= 8, counter.getPairs().size() + " pairs kept");
+		assertTrue(counter.getPrunedMass() > 0);
+	}
+
+	/**
+	 * Counts the text from start to end and in parallel with a small chunk size,
+	 * and checks that the counts are the same.
+	 *
+	 * @param text      - the text to count
+	 * @param order     - number of words in the longest context
+	 * @param chunkSize - the chunk size of the parallel count
+	 * @throws IOException if the temporary file cannot be used
+	 */
+	static void assertParallelMatches(String text, int order, long chunkSize) throws IOException {
+		File file = Files.createTempFile("counter", ".txt").toFile();
+		try {
+			Files.writeString(file.toPath(), text, StandardCharsets.UTF_8);
+			try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+				BigramCounter sequential = BigramCounter.count(input.getChannel(), 0, file.length(), order);
+				BigramCounter parallel = BigramCounter.countInParallel(input.getChannel(), ForkJoinPool.commonPool(),
+						order, chunkSize);
+				assertEquals(counts(sequential), counts(parallel), "order " + order + " counts");
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Makes text of words drawn from a small vocabulary, some far more often than
+	 * others, separated by spaces, punctuation and line breaks.
+	 *
+	 * @param random - where the words are drawn from
+	 * @param words  - number of words
+	 * @return the text
+	 */
+	static String randomText(Random random, int words) {
+		String[] separators = { " ", " ", " ", ", ", ".\n", " -- ", "\n\n" };
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < words; i++) {
+			text.append("w").append((int) Math.pow(random.nextInt(40) + 1, 1.5) % 50);
+			text.append(separators[random.nextInt(separators.length)]);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Lists the counts of a counter by the words of each pair, so counters that
+	 * numbered their words differently can be compared.
+	 *
+	 * @param counter - the counter
+	 * @return the count of each "context words -> next word"
+	 */
+	static Map<String, Integer> counts(BigramCounter counter) {
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		LongIntMap pairs = counter.getPairs();
+		for (int slot = 0; slot < pairs.capacity(); slot++) {
+			long pair = pairs.keyAt(slot);
+			if (pair >= 0) {
+				long context = counter.getContext((int) (pair >>> 32));
+				StringBuilder key = new StringBuilder();
+				for (int back = ContextKeys.length(context, counter.getOrder()) - 1; back >= 0; back--) {
+					key.append(word(counter, ContextKeys.word(context, back, counter.getOrder()))).append(' ');
+				}
+				key.append("-> ").append(word(counter, (int) pair));
+				counts.put(key.toString(), pairs.valueAt(slot));
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Gets a word of a counter by its number.
+	 *
+	 * @param counter - the counter
+	 * @param id      - the number of the word
+	 * @return the word
+	 */
+	private static String word(BigramCounter counter, int id) {
+		byte[] bytes = new byte[counter.getWords().length(id)];
+		counter.getWords().copy(id, bytes, 0);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
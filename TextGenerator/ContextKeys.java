@@ -0,0 +1,124 @@
+package comprehensive;
+
+/**
+ * Packs the last few words of a text into a single long, so a context of up to
+ * order words can be used as a primitive hash key instead of a String. Each
+ * word takes 63 / order bits and is stored as its id plus one, with the most
+ * recent word in the lowest bits. A field of zero means there is no word there,
+ * so contexts of different lengths never share a key.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+final class ContextKeys {
+
+	/**
+	 * The longest context supported. Longer contexts would leave each word too
+	 * few bits for the vocabulary of a real corpus, 32,767 words at order 4.
+	 */
+	static final int MAX_ORDER = 3;
+
+	/**
+	 * Not meant to be created.
+	 */
+	private ContextKeys() {
+	}
+
+	/**
+	 * Checks that an order is supported.
+	 *
+	 * @param order - number of words in the longest context
+	 * @throws IllegalArgumentException if order is not between 1 and MAX_ORDER
+	 */
+	static void checkOrder(int order) {
+		if (order < 1 || order > MAX_ORDER) {
+			throw new IllegalArgumentException("The order must be between 1 and " + MAX_ORDER + ".");
+		}
+	}
+
+	/**
+	 * Returns the number of bits each word of a context takes.
+	 *
+	 * @param order - number of words in the longest context
+	 * @return bits per word
+	 */
+	private static int bits(int order) {
+		return 63 / order;
+	}
+
+	/**
+	 * Returns the largest number of distinct words whose ids fit in a context.
+	 *
+	 * @param order - number of words in the longest context
+	 * @return the largest supported vocabulary
+	 */
+	static long maxWords(int order) {
+		return (1L << bits(order)) - 1;
+	}
+
+	/**
+	 * Adds a word to the end of a context, dropping the oldest word if the
+	 * context already holds order words.
+	 *
+	 * @param context - the context so far, or zero for none
+	 * @param id      - id of the next word
+	 * @param order   - number of words in the longest context
+	 * @return the new context
+	 */
+	static long append(long context, int id, int order) {
+		int bits = bits(order);
+		return ((context << bits) | (id + 1L)) & mask(order * bits);
+	}
+
+	/**
+	 * Keeps only the most recent words of a context.
+	 *
+	 * @param context - the context to shorten
+	 * @param length  - number of words to keep
+	 * @param order   - number of words in the longest context
+	 * @return the last length words of the context
+	 */
+	static long suffix(long context, int length, int order) {
+		return context & mask(length * bits(order));
+	}
+
+	/**
+	 * Counts the words in a context.
+	 *
+	 * @param context - the context to measure
+	 * @param order   - number of words in the longest context
+	 * @return the number of words
+	 */
+	static int length(long context, int order) {
+		int bits = bits(order);
+		int length = 0;
+		while (context != 0) {
+			context >>>= bits;
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * Gets one word of a context.
+	 *
+	 * @param context - the context to read
+	 * @param back    - how many words back to look, zero for the most recent
+	 * @param order   - number of words in the longest context
+	 * @return id of the word, or -1 if the context is not that long
+	 */
+	static int word(long context, int back, int order) {
+		int bits = bits(order);
+		return (int) ((context >>> (back * bits)) & mask(bits)) - 1;
+	}
+
+	/**
+	 * Returns a mask of the given number of low bits.
+	 *
+	 * @param bits - number of bits
+	 * @return the mask
+	 */
+	private static long mask(int bits) {
+		return bits >= 64 ? -1L : (1L << bits) - 1;
+	}
+}
@@ -0,0 +1,261 @@
+package comprehensive;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Writes synthetic corpora of a chosen size, vocabulary and skew, for testing
+ * how TextProbability scales without needing real text. The words are w0, w1,
+ * w2, and so on, and the word of rank r (counting from zero) is drawn with
+ * probability proportional to 1 / (r + 1)^s for a Zipf exponent s.
+ *
+ * To give the text some bigram structure, each word can also be given a few
+ * fixed partner words: with a chosen probability the next word is one of the
+ * partners of the previous word instead of a fresh Zipf draw.
+ *
+ * Words are drawn with rejection-inversion sampling, so no table over the
+ * vocabulary is built, and they are streamed through a fixed buffer, so a
+ * corpus of any size is written in constant memory. The same arguments always
+ * produce the same file.
+ *
+ * Usage: CorpusGenerator output tokens vocabulary [exponent] [seed]
+ * [bigram probability] [partners]
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+public class CorpusGenerator {
+
+	private static final int WORDS_PER_LINE = 16;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final int vocabulary;
+	private final long seed;
+	private final double bigramProbability;
+	private final int partners;
+	private final ZipfSampler sampler;
+
+	/**
+	 * Creates a generator.
+	 *
+	 * @param vocabulary        - number of distinct words
+	 * @param exponent          - Zipf exponent, where larger is more skewed
+	 * @param seed              - seed of the random draws
+	 * @param bigramProbability - chance that a word is a partner of the word
+	 *                          before it, or 0 for independent words
+	 * @param partners          - number of partners of each word
+	 * @throws IllegalArgumentException if an argument is out of range
+	 */
+	public CorpusGenerator(int vocabulary, double exponent, long seed, double bigramProbability, int partners) {
+		if (vocabulary < 1 || !(exponent > 0) || bigramProbability < 0 || bigramProbability > 1 || partners < 1) {
+			throw new IllegalArgumentException("Invalid corpus parameters.");
+		}
+		this.vocabulary = vocabulary;
+		this.seed = seed;
+		this.bigramProbability = bigramProbability;
+		this.partners = partners;
+		this.sampler = new ZipfSampler(vocabulary, exponent);
+	}
+
+	/**
+	 * Writes the corpus to a stream, without closing it.
+	 *
+	 * @param out    - where to write the corpus
+	 * @param tokens - number of words to write
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void write(OutputStream out, long tokens) throws IOException {
+		Random random = new Random(seed);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int size = 0;
+		int previous = -1;
+		for (long i = 0; i < tokens; i++) {
+			int word;
+			if (previous >= 0 && random.nextDouble() < bigramProbability) {
+				word = partner(previous, random.nextInt(partners));
+			} else {
+				word = sampler.sample(random) - 1;
+			}
+			previous = word;
+
+			if (size > buffer.length - 16) {
+				out.write(buffer, 0, size);
+				size = 0;
+			}
+			buffer[size++] = 'w';
+			size = writeDigits(buffer, size, word);
+			buffer[size++] = (byte) (i % WORDS_PER_LINE == WORDS_PER_LINE - 1 ? '\n' : ' ');
+		}
+		out.write(buffer, 0, size);
+		out.flush();
+	}
+
+	/**
+	 * Writes the corpus to a file, replacing the file if it exists.
+	 *
+	 * @param file   - where to write the corpus
+	 * @param tokens - number of words to write
+	 * @return the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public File write(File file, long tokens) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)) {
+			write(out, tokens);
+		}
+		return file;
+	}
+
+	/**
+	 * Picks a fixed partner of a word by hashing the word, the partner number and
+	 * the seed.
+	 *
+	 * @param word   - the word
+	 * @param number - which of its partners, from 0 to partners - 1
+	 * @return the partner
+	 */
+	private int partner(int word, int number) {
+		long hash = (word * (long) partners + number + seed) * 0x9E3779B97F4A7C15L;
+		hash ^= hash >>> 31;
+		return Math.floorMod(hash, vocabulary);
+	}
+
+	/**
+	 * Writes the decimal digits of a number.
+	 *
+	 * @param buffer - where to write them
+	 * @param size   - position of the first digit
+	 * @param number - a number that is not negative
+	 * @return the position after the last digit
+	 */
+	private static int writeDigits(byte[] buffer, int size, int number) {
+		int end = size + 1;
+		for (int rest = number; rest >= 10; rest /= 10) {
+			end++;
+		}
+		for (int i = end - 1; i >= size; i--) {
+			buffer[i] = (byte) ('0' + number % 10);
+			number /= 10;
+		}
+		return end;
+	}
+
+	/**
+	 * Writes a corpus from the command line.
+	 *
+	 * @param args - output path, tokens, vocabulary, and optionally the exponent
+	 *             (1), seed (0), bigram probability (0) and partners (4)
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		File output = new File(args[0]);
+		long tokens = Long.parseLong(args[1]);
+		int vocabulary = Integer.parseInt(args[2]);
+		double exponent = args.length > 3 ? Double.parseDouble(args[3]) : 1;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+		double bigramProbability = args.length > 5 ? Double.parseDouble(args[5]) : 0;
+		int partners = args.length > 6 ? Integer.parseInt(args[6]) : 4;
+
+		new CorpusGenerator(vocabulary, exponent, seed, bigramProbability, partners).write(output, tokens);
+	}
+
+	/**
+	 * Draws ranks from 1 to n with probability proportional to 1 / rank^s, by
+	 * rejection-inversion (Hormann and Derflinger, 1996). Each draw takes
+	 * constant expected time and no table is needed.
+	 */
+	private static class ZipfSampler {
+
+		private final int n;
+		private final double exponent;
+		private final double hIntegralX1;
+		private final double hIntegralN;
+		private final double s;
+
+		/**
+		 * Creates a sampler.
+		 *
+		 * @param n        - the largest rank
+		 * @param exponent - the Zipf exponent, greater than zero
+		 */
+		ZipfSampler(int n, double exponent) {
+			this.n = n;
+			this.exponent = exponent;
+			hIntegralX1 = hIntegral(1.5) - 1;
+			hIntegralN = hIntegral(n + 0.5);
+			s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+		}
+
+		/**
+		 * Draws a rank.
+		 *
+		 * @param random - source of randomness
+		 * @return a rank from 1 to n
+		 */
+		int sample(Random random) {
+			while (true) {
+				double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+				double x = hIntegralInverse(u);
+				int k = (int) Math.max(1, Math.min(n, (long) (x + 0.5)));
+				if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+					return k;
+				}
+			}
+		}
+
+		/**
+		 * The unnormalized probability density, 1 / x^s.
+		 *
+		 * @param x - a point
+		 * @return the density there
+		 */
+		private double h(double x) {
+			return Math.exp(-exponent * Math.log(x));
+		}
+
+		/**
+		 * An integral of h.
+		 *
+		 * @param x - a point
+		 * @return the integral up to there
+		 */
+		private double hIntegral(double x) {
+			double logX = Math.log(x);
+			return helper2((1 - exponent) * logX) * logX;
+		}
+
+		/**
+		 * The inverse of hIntegral.
+		 *
+		 * @param x - a value of hIntegral
+		 * @return the point it was taken at
+		 */
+		private double hIntegralInverse(double x) {
+			double t = Math.max(x * (1 - exponent), -1);
+			return Math.exp(helper1(t) * x);
+		}
+
+		/**
+		 * Computes log(1 + x) / x, accurately even near zero.
+		 *
+		 * @param x - the argument
+		 * @return log1p(x) / x
+		 */
+		private static double helper1(double x) {
+			return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1 / 3.0 - 0.25 * x));
+		}
+
+		/**
+		 * Computes (exp(x) - 1) / x, accurately even near zero.
+		 *
+		 * @param x - the argument
+		 * @return expm1(x) / x
+		 */
+		private static double helper2(double x) {
+			return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3.0 * (1 + 0.25 * x));
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package comprehensive;
+
+/**
+ * Approximately counts how often each long key occurs, in a fixed amount of
+ * memory however many distinct keys there are. The sketch is a few rows of
+ * counters, and each key adds to one counter per row, picked by a different
+ * hash. The smallest of its counters is the estimate, which is never below
+ * the true count and is above it only by the counts of keys that collide with
+ * it in every row. Updates are conservative: only the counters that are at
+ * the current estimate are raised, which keeps collisions from inflating
+ * other keys as much.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+class CountMinSketch {
+
+	private static final int DEPTH = 4;
+	private static final long[] SEEDS = { 0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L,
+			0xD6E8FEB86659FD93L };
+
+	private final int[] counters;
+	private final int mask;
+
+	/**
+	 * Creates a sketch that takes about the given number of bytes.
+	 *
+	 * @param bytes - memory to use for the counters
+	 */
+	CountMinSketch(long bytes) {
+		long width = Math.max(bytes / (DEPTH * Integer.BYTES), 16);
+		int size = Integer.highestOneBit((int) Math.min(width, 1 << 26));
+		counters = new int[DEPTH * size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Counts one more occurrence of a key.
+	 *
+	 * @param key - the key
+	 * @return the new estimate of how often the key has occurred
+	 */
+	int add(long key) {
+		int estimate = Integer.MAX_VALUE;
+		for (int row = 0; row < DEPTH; row++) {
+			estimate = Math.min(estimate, counters[slot(key, row)]);
+		}
+		if (estimate == Integer.MAX_VALUE) {
+			return estimate;
+		}
+		estimate++;
+		for (int row = 0; row < DEPTH; row++) {
+			int slot = slot(key, row);
+			counters[slot] = Math.max(counters[slot], estimate);
+		}
+		return estimate;
+	}
+
+	/**
+	 * Picks the counter of a key in a row.
+	 *
+	 * @param key - the key
+	 * @param row - the row
+	 * @return the position of the counter in the table
+	 */
+	private int slot(long key, int row) {
+		long hash = (key ^ (key >>> 29)) * SEEDS[row];
+		return row * (mask + 1) + ((int) (hash >>> 32) & mask);
+	}
+}
@@ -0,0 +1,88 @@
+package comprehensive;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Copies buffers into direct memory, outside the Java heap, where the garbage
+ * collector never scans or moves them. Buffers that are already direct, such
+ * as the tables of a memory-mapped snapshot, are returned as they are. A copy
+ * is released when the buffer is collected, like any other object. Each copy
+ * is one buffer, so none may reach 2 GB.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+final class DirectBuffers {
+
+	/**
+	 * This class only has static methods.
+	 */
+	private DirectBuffers() {
+	}
+
+	/**
+	 * Copies bytes into direct memory.
+	 *
+	 * @param buffer - the bytes, from index zero to the limit
+	 * @return a direct buffer with the same bytes
+	 */
+	static ByteBuffer of(ByteBuffer buffer) {
+		if (buffer.isDirect()) {
+			return buffer;
+		}
+		return allocate(buffer.limit()).put(0, buffer, 0, buffer.limit());
+	}
+
+	/**
+	 * Copies ints into direct memory.
+	 *
+	 * @param buffer - the ints, from index zero to the limit
+	 * @return a direct buffer with the same ints
+	 */
+	static IntBuffer of(IntBuffer buffer) {
+		if (buffer.isDirect()) {
+			return buffer;
+		}
+		return ints(buffer.limit()).put(0, buffer, 0, buffer.limit());
+	}
+
+	/**
+	 * Copies longs into direct memory.
+	 *
+	 * @param buffer - the longs, from index zero to the limit
+	 * @return a direct buffer with the same longs
+	 */
+	static LongBuffer of(LongBuffer buffer) {
+		if (buffer.isDirect()) {
+			return buffer;
+		}
+		return allocate((long) buffer.limit() * Long.BYTES).asLongBuffer().put(0, buffer, 0, buffer.limit());
+	}
+
+	/**
+	 * Allocates zeroed ints in direct memory.
+	 *
+	 * @param length - number of ints
+	 * @return a direct buffer of that many ints
+	 */
+	static IntBuffer ints(int length) {
+		return allocate((long) length * Integer.BYTES).asIntBuffer();
+	}
+
+	/**
+	 * Allocates zeroed bytes in direct memory, in the native byte order.
+	 *
+	 * @param length - number of bytes
+	 * @return a direct buffer of that many bytes
+	 * @throws IllegalArgumentException if the buffer would be 2 GB or more
+	 */
+	private static ByteBuffer allocate(long length) {
+		if (length > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A table of the model is too large to keep off the heap.");
+		}
+		return ByteBuffer.allocateDirect((int) length).order(ByteOrder.nativeOrder());
+	}
+}
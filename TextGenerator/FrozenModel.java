@@ -0,0 +1,255 @@
+package comprehensive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
+
+/**
+ * A frozen Markov Chain that can only be read, for sharing one model among
+ * many threads. It is taken from a TextProbability with frozen, and text added
+ * to the TextProbability afterward does not change it. Every method only reads
+ * the model, without locking, so any number of threads may call them at once
+ * once the view has been handed to them.
+ *
+ * Random words are drawn from a RandomGenerator passed to each call instead of
+ * a Random created inside, so each thread can use its own, such as
+ * ThreadLocalRandom.current() or a split of a SplittableRandom. A generator
+ * must not be used by two calls at the same time unless it is thread-safe
+ * itself, and a seeded generator gives the same words every time.
+ *
+ * Many requests can also be answered at once by generateAll, which spreads
+ * them over a fork/join pool and hands each result to a sink as soon as it is
+ * ready.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+public final class FrozenModel {
+
+	/** Batches are split in halves until the pieces are no larger than this. */
+	private static final int BATCH_GRAIN = 16;
+
+	private final MarkovModel model;
+
+	/**
+	 * Creates a view of a frozen model.
+	 *
+	 * @param model - the model, which must be frozen
+	 */
+	FrozenModel(MarkovModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * Gets the number of previous words each word depends on.
+	 *
+	 * @return the order
+	 */
+	public int getOrder() {
+		return model.getOrder();
+	}
+
+	/**
+	 * Generates the k most probable words that could come after the seed word,
+	 * like TextProbability.generateProbable, in O(k) time.
+	 *
+	 * @param seed    - the starting word used to look up probable words that come
+	 *                after it
+	 * @param kAmount - the number of probable words to return
+	 * @return a string of most probable words in descending order separated by a
+	 *         space
+	 */
+	public String generateProbable(String seed, int kAmount) {
+		return model.generateProbable(seed, kAmount);
+	}
+
+	/**
+	 * Generates k words by always following the most probable next word, like
+	 * TextProbability.generateDeterminstic.
+	 *
+	 * @param seed    - the first word of the output
+	 * @param kAmount - number of words to be generated
+	 * @return a string of a deterministic sequence of words separated by a space
+	 */
+	public String generateDeterminstic(String seed, int kAmount) {
+		return model.generateDeterminstic(seed, kAmount);
+	}
+
+	/**
+	 * Generates k random words like TextProbability.generateRandom, drawing each
+	 * next word from the given generator in constant time.
+	 *
+	 * @param seed    - the first word of the output
+	 * @param kAmount - the number of random words to return
+	 * @param random  - source of randomness for this call
+	 * @return a string of random words separated by a space
+	 */
+	public String generateRandom(String seed, int kAmount, RandomGenerator random) {
+		return model.generateRandom(seed, kAmount, random);
+	}
+
+	/**
+	 * Writes the same words as generateDeterminstic to a stream while they are
+	 * generated. The stream is flushed but not closed.
+	 *
+	 * @param seed    - the first word of the output
+	 * @param kAmount - number of words to be generated
+	 * @param out     - where to write the words, separated by a space
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void generateDeterminstic(String seed, long kAmount, OutputStream out) throws IOException {
+		model.generateDeterminstic(seed, kAmount, out);
+	}
+
+	/**
+	 * Writes random words picked like generateRandom to a stream while they are
+	 * generated. The stream is flushed but not closed.
+	 *
+	 * @param seed    - the first word of the output
+	 * @param kAmount - number of words to be generated
+	 * @param random  - source of randomness for this call
+	 * @param out     - where to write the words, separated by a space
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void generateRandom(String seed, long kAmount, RandomGenerator random, OutputStream out)
+			throws IOException {
+		model.generateRandom(seed, kAmount, random, out);
+	}
+
+	/**
+	 * Answers one request.
+	 *
+	 * @param request - the seed, k and mode
+	 * @param random  - source of randomness if the mode is random
+	 * @return the generated words separated by a space
+	 */
+	public String generate(GenerationRequest request, RandomGenerator random) {
+		return switch (request.getMode()) {
+		case "probable" -> generateProbable(request.getSeed(), request.getKAmount());
+		case "deterministic" -> generateDeterminstic(request.getSeed(), request.getKAmount());
+		default -> generateRandom(request.getSeed(), request.getKAmount(), random);
+		};
+	}
+
+	/**
+	 * Answers many requests in parallel on the common fork/join pool, handing
+	 * each result to the sink. Random requests draw from their own generator,
+	 * seeded from the master seed and the position of the request, so a request
+	 * gets the same words however many threads there are and whichever finish
+	 * first. Returns once every result has been handed over.
+	 *
+	 * @param requests   - the requests
+	 * @param masterSeed - seed that every random stream is derived from
+	 * @param sink       - receives each result, from any thread
+	 */
+	public void generateAll(List<GenerationRequest> requests, long masterSeed, GenerationRequest.Sink sink) {
+		generateAll(requests, masterSeed, ForkJoinPool.commonPool(), sink);
+	}
+
+	/**
+	 * Answers many requests in parallel like generateAll, on a pool of the given
+	 * number of threads.
+	 *
+	 * @param requests   - the requests
+	 * @param masterSeed - seed that every random stream is derived from
+	 * @param threads    - number of threads to use
+	 * @param sink       - receives each result, from any thread
+	 */
+	public void generateAll(List<GenerationRequest> requests, long masterSeed, int threads,
+			GenerationRequest.Sink sink) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			generateAll(requests, masterSeed, pool, sink);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Answers many requests on a pool.
+	 *
+	 * @param requests   - the requests
+	 * @param masterSeed - seed that every random stream is derived from
+	 * @param pool       - the pool that answers them
+	 * @param sink       - receives each result, from any thread
+	 */
+	private void generateAll(List<GenerationRequest> requests, long masterSeed, ForkJoinPool pool,
+			GenerationRequest.Sink sink) {
+		if (!requests.isEmpty()) {
+			pool.invoke(new BatchTask(requests, 0, requests.size(), masterSeed, sink));
+		}
+	}
+
+	/**
+	 * Derives the seed of the random stream of one request of a batch, by mixing
+	 * the master seed and the position with the SplitMix64 finalizer, so nearby
+	 * positions get unrelated streams.
+	 *
+	 * @param masterSeed - seed of the batch
+	 * @param index      - position of the request
+	 * @return seed of the request
+	 */
+	private static long requestSeed(long masterSeed, int index) {
+		long z = masterSeed + (index + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Answers the requests of one part of a batch, splitting the part in two and
+	 * answering the halves in parallel while it holds more than BATCH_GRAIN
+	 * requests.
+	 */
+	private class BatchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<GenerationRequest> requests;
+		private final int from;
+		private final int to;
+		private final long masterSeed;
+		private final transient GenerationRequest.Sink sink;
+
+		/**
+		 * Creates a task for the requests from index from up to index to.
+		 *
+		 * @param requests   - every request, in order
+		 * @param from       - index of the first request of the part
+		 * @param to         - index just past the last request of the part
+		 * @param masterSeed - seed that every random stream is derived from
+		 * @param sink       - receives each result
+		 */
+		BatchTask(List<GenerationRequest> requests, int from, int to, long masterSeed, GenerationRequest.Sink sink) {
+			this.requests = requests;
+			this.from = from;
+			this.to = to;
+			this.masterSeed = masterSeed;
+			this.sink = sink;
+		}
+
+		/**
+		 * Answers the requests of the part.
+		 */
+		@Override
+		protected void compute() {
+			if (to - from > BATCH_GRAIN) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BatchTask(requests, from, middle, masterSeed, sink),
+						new BatchTask(requests, middle, to, masterSeed, sink));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				GenerationRequest request = requests.get(i);
+				RandomGenerator random = request.getMode().equals("random")
+						? new SplittableRandom(requestSeed(masterSeed, i))
+						: null;
+				sink.accept(i, generate(request, random));
+			}
+		}
+	}
+}
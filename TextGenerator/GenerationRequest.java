@@ -0,0 +1,102 @@
+package comprehensive;
+
+/**
+ * One query for generated words: a seed word, the number of words k, and one
+ * of the modes "probable", "deterministic" or "random". Requests are given to
+ * the batch methods of TextProbability and FrozenModel, and are parsed from
+ * the "seed k mode" lines of the query server.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+public final class GenerationRequest {
+
+	/**
+	 * Receives the words generated for each request of a batch. It is called
+	 * from the threads of the batch, in no particular order and possibly at the
+	 * same time, so it must be thread-safe.
+	 */
+	public interface Sink {
+
+		/**
+		 * Takes the result of one request.
+		 *
+		 * @param index - position of the request in the batch
+		 * @param words - the generated words, separated by a space
+		 */
+		void accept(int index, String words);
+	}
+
+	/** The most words a parsed request may ask for. */
+	public static final int MAX_K_AMOUNT = 100_000;
+
+	private final String seed;
+	private final int kAmount;
+	private final String mode;
+
+	/**
+	 * Creates a request.
+	 *
+	 * @param seed    - the seed word
+	 * @param kAmount - the number of words to generate
+	 * @param mode    - "probable", "deterministic" or "random"
+	 * @throws IllegalArgumentException if the mode is not one of those
+	 */
+	public GenerationRequest(String seed, int kAmount, String mode) {
+		if (!mode.equals("probable") && !mode.equals("deterministic") && !mode.equals("random")) {
+			throw new IllegalArgumentException("Invalid mode.");
+		}
+		this.seed = seed;
+		this.kAmount = kAmount;
+		this.mode = mode;
+	}
+
+	/**
+	 * Parses a request from a line of the form "seed k mode". The seed is
+	 * lowercased, like the words of the text, and k must be between 0 and
+	 * MAX_K_AMOUNT, so a query cannot ask for more words than fit in memory.
+	 *
+	 * @param query - the line
+	 * @return the request
+	 * @throws IllegalArgumentException if the line is malformed or k is out of
+	 *                                  range
+	 */
+	public static GenerationRequest parse(String query) {
+		String[] parts = query.trim().split("\\s+");
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("Expected \"seed k mode\".");
+		}
+		int kAmount = Integer.parseInt(parts[1]);
+		if (kAmount < 0 || kAmount > MAX_K_AMOUNT) {
+			throw new IllegalArgumentException("k must be between 0 and " + MAX_K_AMOUNT + ".");
+		}
+		return new GenerationRequest(parts[0].toLowerCase(), kAmount, parts[2]);
+	}
+
+	/**
+	 * Gets the seed word.
+	 *
+	 * @return the seed
+	 */
+	public String getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Gets the number of words to generate.
+	 *
+	 * @return k
+	 */
+	public int getKAmount() {
+		return kAmount;
+	}
+
+	/**
+	 * Gets the mode.
+	 *
+	 * @return "probable", "deterministic" or "random"
+	 */
+	public String getMode() {
+		return mode;
+	}
+}
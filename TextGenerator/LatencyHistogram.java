@@ -0,0 +1,98 @@
+package comprehensive;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records how long operations take, from any number of threads at once, in a
+ * fixed number of buckets. Each power of two is split into eight buckets, so a
+ * reported percentile is never more than an eighth above the true value, and
+ * recording is a single atomic increment with no locking or allocation.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+class LatencyHistogram {
+
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+
+	/**
+	 * Records one operation.
+	 *
+	 * @param nanos - how long it took in nanoseconds
+	 */
+	void record(long nanos) {
+		buckets.incrementAndGet(bucket(Math.max(nanos, 0)));
+	}
+
+	/**
+	 * Finds the bucket a duration falls in. Durations below SUB_BUCKETS get a
+	 * bucket each, and larger ones are bucketed by their highest bit and the
+	 * SUB_BITS bits below it.
+	 *
+	 * @param nanos - a duration that is not negative
+	 * @return the bucket
+	 */
+	private static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) - SUB_BUCKETS);
+	}
+
+	/**
+	 * Returns the largest duration that falls in a bucket.
+	 *
+	 * @param bucket - the bucket
+	 * @return its upper bound in nanoseconds
+	 */
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long base = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+		return base + (1L << shift) - 1;
+	}
+
+	/**
+	 * Returns the number of operations recorded.
+	 *
+	 * @return the count
+	 */
+	long count() {
+		long count = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			count += buckets.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Estimates a percentile of the recorded durations.
+	 *
+	 * @param percentile - between 0 and 100
+	 * @return the upper bound of the bucket holding that percentile, in
+	 *         nanoseconds, or zero if nothing was recorded
+	 */
+	long percentile(double percentile) {
+		long[] counts = new long[buckets.length()];
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		long rank = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= Math.max(rank, 1)) {
+				return upperBound(i);
+			}
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,202 @@
+package comprehensive;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from long keys to int values that uses open addressing with
+ * linear probing. Keys and values are kept in two parallel primitive arrays, so
+ * nothing is boxed and no object is created per entry. Keys may not be
+ * negative, since -1 marks an empty slot.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+class LongIntMap {
+
+	private static final long EMPTY = -1;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+
+	/**
+	 * Creates an empty map with room for the given number of entries before it
+	 * has to grow.
+	 *
+	 * @param expectedSize - number of entries expected
+	 */
+	LongIntMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) * 2;
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	/**
+	 * Finds the first slot to probe for a key in a table of the given size.
+	 *
+	 * @param key  - the key to look for
+	 * @param mask - the table size minus one, where the size is a power of two
+	 * @return the slot to start probing at
+	 */
+	static int slot(long key, int mask) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	/**
+	 * Gets the value of a key.
+	 *
+	 * @param key - the key to look up
+	 * @return the value, or -1 if the key is not in the map
+	 */
+	int get(long key) {
+		int mask = keys.length - 1;
+		for (int slot = slot(key, mask);; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+			if (keys[slot] == EMPTY) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Adds a key with the given value unless the key is already in the map.
+	 *
+	 * @param key   - the key to add
+	 * @param value - the value to give it
+	 * @return the value the key already had, or -1 if it was added
+	 */
+	int putIfAbsent(long key, int value) {
+		int mask = keys.length - 1;
+		int slot = slot(key, mask);
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		insert(slot, key, value);
+		return -1;
+	}
+
+	/**
+	 * Adds an amount to the value of a key in place, adding the key with that
+	 * amount if it is not in the map yet.
+	 *
+	 * @param key    - the key to add to
+	 * @param amount - how much to add
+	 */
+	void add(long key, int amount) {
+		int mask = keys.length - 1;
+		int slot = slot(key, mask);
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				values[slot] += amount;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		insert(slot, key, amount);
+	}
+
+	/**
+	 * Adds an amount to the value of a key in place if the key is in the map.
+	 *
+	 * @param key    - the key to add to
+	 * @param amount - how much to add
+	 * @return true if the key was found
+	 */
+	boolean addIfPresent(long key, int amount) {
+		int mask = keys.length - 1;
+		for (int slot = slot(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				values[slot] += amount;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stores a new entry in an empty slot, growing the table once it is half
+	 * full.
+	 *
+	 * @param slot  - an empty slot at the end of the key's probe sequence
+	 * @param key   - the key to store
+	 * @param value - the value to store
+	 */
+	private void insert(int slot, long key, int value) {
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		if (size * 2 > keys.length) {
+			grow();
+		}
+	}
+
+	/**
+	 * Doubles the table and places every entry again.
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldValues.length * 2];
+		Arrays.fill(keys, EMPTY);
+
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = slot(oldKeys[i], mask);
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return the number of keys in the map
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of slots, for walking every entry with keyAt and
+	 * valueAt.
+	 *
+	 * @return the number of slots
+	 */
+	int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Gets the key in a slot.
+	 *
+	 * @param slot - the slot to read
+	 * @return the key, or -1 if the slot is empty
+	 */
+	long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * Gets the value in a slot.
+	 *
+	 * @param slot - the slot to read
+	 * @return the value, which is meaningless if the slot is empty
+	 */
+	int valueAt(int slot) {
+		return values[slot];
+	}
+}
@@ -0,0 +1,1069 @@
+package comprehensive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.random.RandomGenerator;
+
+/**
+ * A compiled, read-only form of a Markov Chain. Every word is stored once in a
+ * sorted WordTable and referred to by its index (its id), so comparing two ids
+ * gives the same answer as comparing the words lexicographically. The
+ * subsequent words of each context are stored in compressed sparse rows: the
+ * row r is the range offsets[r] to offsets[r + 1] of the parallel successors
+ * and counts arrays. No counts are boxed and each row sits in one contiguous
+ * block of memory.
+ *
+ * The first rows belong to single words, so the row of a one word context is
+ * simply the id of the word. A model of a higher order also has a row for
+ * every longer context that was seen. Those contexts are packed into longs by
+ * ContextKeys, listed in row order, and found through an open-addressing table
+ * of row numbers, so a context costs about as much as a row of an order 1
+ * model. While generating, the model slides a window over the last order words
+ * and uses the longest context in it that was seen in the text.
+ *
+ * A row is normally sorted by successor id. Freezing the model sorts every row
+ * by rank instead (descending frequency, then ascending word), so the k most
+ * probable words are simply the first k of the row. A frozen model also keeps
+ * an alias table for every row (Vose's alias method, in exact integer
+ * arithmetic), so a random next word is drawn in constant time with
+ * probability proportional to its count.
+ *
+ * All tables are held in buffers, so a model works the same whether it was
+ * compiled on the heap, copied into direct memory off the heap, or mapped
+ * straight out of a ModelSnapshot file.
+ *
+ * A model is never changed once it is created, since compiling more counts
+ * makes a new model. A frozen model is only read while generating, so it can
+ * be shared by any number of threads without locking, as long as each random
+ * walk is given its own source of randomness.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+class MarkovModel {
+
+	/** How many steps of a deterministic walk are remembered to look for a cycle. */
+	private static final int MAX_CYCLE_SEARCH = 1 << 20;
+
+	private final int order;
+	private final WordTable words;
+	private final LongBuffer contexts;
+	private final IntBuffer contextSlots;
+	private final IntBuffer offsets;
+	private final IntBuffer successors;
+	private final IntBuffer counts;
+	private final boolean ranked;
+
+	// Alias tables, only kept once the model is frozen
+	private final IntBuffer totals;
+	private final IntBuffer thresholds;
+	private final IntBuffer aliases;
+
+	// Most probable next word of each row plus one, or zero if not found yet.
+	// Only needed before freezing, and kept off the heap with the rest of an
+	// off-heap model. It is filled in lazily without locking, since threads that
+	// race on it at worst find the same word twice. The field is volatile so a
+	// thread that sees the buffer also sees it fully set up.
+	private volatile IntBuffer bestCache;
+
+	/**
+	 * Creates a model from already compiled tables. The alias tables are null
+	 * unless the rows are sorted by rank.
+	 *
+	 * @param order        - number of words in the longest context
+	 * @param words        - every word
+	 * @param contexts     - the packed context of every row after the word rows
+	 * @param contextSlots - open-addressing table of those rows, zero when empty
+	 * @param offsets      - start of each row, plus the end of the last row
+	 * @param successors   - ids of subsequent words
+	 * @param counts       - frequency of each subsequent word
+	 * @param totals       - sum of the counts in each row
+	 * @param thresholds   - chance out of the row total of keeping each slot
+	 * @param aliases      - position within the row to use instead of each slot
+	 */
+	MarkovModel(int order, WordTable words, LongBuffer contexts, IntBuffer contextSlots, IntBuffer offsets,
+			IntBuffer successors, IntBuffer counts, IntBuffer totals, IntBuffer thresholds, IntBuffer aliases) {
+		this.order = order;
+		this.words = words;
+		this.contexts = contexts;
+		this.contextSlots = contextSlots;
+		this.offsets = offsets;
+		this.successors = successors;
+		this.counts = counts;
+		this.ranked = thresholds != null;
+		this.totals = totals;
+		this.thresholds = thresholds;
+		this.aliases = aliases;
+		this.bestCache = null;
+	}
+
+	/**
+	 * Compiles counted word pairs, adding them to the counts of an earlier model
+	 * if one is given. The earlier model is not changed. If it was frozen, so is
+	 * the result: rows that gained pairs are ranked again and get new alias
+	 * tables, and every other row is copied as it was.
+	 *
+	 * Adding to an earlier model still takes time and memory linear in the size
+	 * of the whole model, since every row is copied into the new tables. A new
+	 * word shifts the ids of the words after it, so then every row is also
+	 * renumbered as it is copied. If the counts bring no new words, the rows
+	 * that gained no pairs are copied in blocks instead.
+	 *
+	 * @param base    - model whose counts are carried over, or null to start empty
+	 * @param counter - counts of each word following each context
+	 * @return a model holding the counts of both
+	 * @throws IllegalArgumentException if the model and the counts are of
+	 *                                  different orders
+	 * @throws IllegalStateException    if there are too many distinct words to
+	 *                                  pack into contexts of this order
+	 */
+	static MarkovModel compile(MarkovModel base, BigramCounter counter) {
+		int order = counter.getOrder();
+		if (base != null && base.order != order) {
+			throw new IllegalArgumentException(
+					"Cannot add order " + order + " counts to an order " + base.order + " model.");
+		}
+		WordTable baseWords = base == null ? WordTable.of(new String[0]) : base.words;
+		int baseRows = base == null ? 0 : base.rowCount();
+
+		// Find the words that are new to the model, without creating Strings
+		WordArena counted = counter.getWords();
+		int[] baseIdOf = new int[counted.size()];
+		int[] fresh = new int[counted.size()];
+		int freshCount = 0;
+		int freshBytes = 0;
+		for (int id = 0; id < baseIdOf.length; id++) {
+			baseIdOf[id] = counted.idIn(baseWords, id);
+			if (baseIdOf[id] < 0) {
+				fresh[freshCount++] = id;
+				freshBytes += counted.length(id);
+			}
+		}
+		sort(fresh, freshCount, counted);
+		if (baseWords.size() + freshCount > ContextKeys.maxWords(order)) {
+			throw new IllegalStateException("Too many distinct words for an order " + order + " model.");
+		}
+
+		// Merge the two sorted vocabularies byte by byte, remembering where each old
+		// id ended up
+		int[] starts = new int[baseWords.size() + freshCount + 1];
+		byte[] bytes = new byte[baseWords.getBytes().limit() + freshBytes];
+		int[] remap = new int[baseWords.size()];
+		int[] idOf = new int[counted.size()];
+		int b = 0;
+		int f = 0;
+		for (int id = 0; id < starts.length - 1; id++) {
+			if (f == freshCount || (b < baseWords.size() && counted.compare(fresh[f], baseWords, b) > 0)) {
+				int length = baseWords.length(b);
+				baseWords.copy(b, 0, bytes, starts[id], length);
+				starts[id + 1] = starts[id] + length;
+				remap[b++] = id;
+			} else {
+				counted.copy(fresh[f], bytes, starts[id]);
+				starts[id + 1] = starts[id] + counted.length(fresh[f]);
+				idOf[fresh[f++]] = id;
+			}
+		}
+		for (int id = 0; id < idOf.length; id++) {
+			if (baseIdOf[id] >= 0) {
+				idOf[id] = remap[baseIdOf[id]];
+			}
+		}
+		WordTable words = new WordTable(ByteBuffer.wrap(bytes), IntBuffer.wrap(starts));
+
+		// Longer contexts are laid out in order of their keys, so the layout does not
+		// depend on the order the text was counted in. Remapping keeps old contexts in
+		// the same relative order, so old context rows only move to make room.
+		int baseContexts = base == null ? 0 : base.contexts.limit();
+		LongIntMap contextRows = new LongIntMap(baseContexts + counter.getContextCount());
+		long[] baseKeys = new long[baseContexts];
+		long[] contexts = new long[baseContexts + counter.getContextCount()];
+		for (int i = 0; i < baseContexts; i++) {
+			baseKeys[i] = remap(base.contexts.get(i), remap, order);
+			contexts[i] = baseKeys[i];
+			contextRows.putIfAbsent(contexts[i], i);
+		}
+		long[] keys = new long[counter.getContextCount()];
+		int contextCount = baseContexts;
+		for (int number = 0; number < keys.length; number++) {
+			keys[number] = remap(counter.getContext(number), idOf, order);
+			if (ContextKeys.length(keys[number], order) > 1 && contextRows.putIfAbsent(keys[number], 0) == -1) {
+				contexts[contextCount++] = keys[number];
+			}
+		}
+		Arrays.sort(contexts, 0, contextCount);
+		int[] baseRowOf = new int[contextCount];
+		contextRows = new LongIntMap(contextCount);
+		for (int i = 0, j = 0; i < contextCount; i++) {
+			contextRows.putIfAbsent(contexts[i], words.size() + i);
+			boolean old = j < baseContexts && baseKeys[j] == contexts[i];
+			baseRowOf[i] = old ? baseWords.size() + j++ : -1;
+		}
+		int[] rowOf = new int[keys.length];
+		for (int number = 0; number < keys.length; number++) {
+			if (ContextKeys.length(keys[number], order) == 1) {
+				rowOf[number] = ContextKeys.word(keys[number], 0, order);
+			} else {
+				rowOf[number] = contextRows.get(keys[number]);
+			}
+		}
+		int rows = words.size() + contextCount;
+
+		// Each new row holds (successor id << 32 | count), sorted by successor id
+		LongIntMap pairs = counter.getPairs();
+		int[] newSizes = new int[rows];
+		for (int slot = 0; slot < pairs.capacity(); slot++) {
+			if (pairs.keyAt(slot) >= 0) {
+				newSizes[rowOf[(int) (pairs.keyAt(slot) >>> 32)]]++;
+			}
+		}
+		long[][] newRows = new long[rows][];
+		for (int slot = 0; slot < pairs.capacity(); slot++) {
+			long pair = pairs.keyAt(slot);
+			if (pair >= 0) {
+				int row = rowOf[(int) (pair >>> 32)];
+				if (newRows[row] == null) {
+					newRows[row] = new long[newSizes[row]];
+				}
+				newRows[row][--newSizes[row]] = (long) idOf[(int) pair] << 32 | pairs.valueAt(slot);
+			}
+		}
+		for (long[] row : newRows) {
+			if (row != null) {
+				Arrays.sort(row);
+			}
+		}
+
+		int basePairs = base == null ? 0 : base.successors.limit();
+		boolean ranked = base != null && base.ranked;
+		int[] offsets = new int[rows + 1];
+		int[] successors = new int[basePairs + pairs.size()];
+		int[] counts = new int[basePairs + pairs.size()];
+		int[] totals = ranked ? new int[rows] : null;
+		int[] thresholds = ranked ? new int[basePairs + pairs.size()] : null;
+		int[] aliases = ranked ? new int[basePairs + pairs.size()] : null;
+		int size = 0;
+		b = 0;
+		for (int row = 0; row < rows; row++) {
+			offsets[row] = size;
+
+			// Word rows come from the old word with this id, context rows from the
+			// old row at the same distance past the word rows
+			int baseRow = -1;
+			if (row < words.size() && b < remap.length && remap[b] == row) {
+				baseRow = b++;
+			} else if (row >= words.size()) {
+				baseRow = baseRowOf[row - words.size()];
+			}
+			int from = 0;
+			int to = 0;
+			if (baseRow >= 0) {
+				from = base.offsets.get(baseRow);
+				to = base.offsets.get(baseRow + 1);
+				if (ranked) {
+					totals[row] = base.totals.get(baseRow);
+				}
+			}
+
+			if (newRows[row] == null) {
+				// Remapping keeps ids in the same relative order, so the row stays sorted
+				if (ranked) {
+					base.thresholds.get(from, thresholds, size, to - from);
+					base.aliases.get(from, aliases, size, to - from);
+				}
+				if (freshCount == 0) {
+					base.successors.get(from, successors, size, to - from);
+					base.counts.get(from, counts, size, to - from);
+					size += to - from;
+				} else {
+					for (int i = from; i < to; i++) {
+						successors[size] = remap[base.successors.get(i)];
+						counts[size++] = base.counts.get(i);
+					}
+				}
+				continue;
+			}
+
+			long[] oldRow = new long[to - from];
+			for (int i = from; i < to; i++) {
+				oldRow[i - from] = (long) remap[base.successors.get(i)] << 32 | base.counts.get(i);
+			}
+			if (ranked) {
+				Arrays.sort(oldRow);
+			}
+			long[] merged = merge(oldRow, newRows[row]);
+			if (ranked) {
+				rank(merged);
+			}
+			for (long pair : merged) {
+				successors[size] = (int) (pair >>> 32);
+				counts[size++] = (int) pair;
+			}
+			if (ranked) {
+				totals[row] = buildAlias(counts, offsets[row], size, thresholds, aliases);
+			}
+		}
+		offsets[rows] = size;
+
+		LongBuffer contextBuffer = LongBuffer.wrap(Arrays.copyOf(contexts, contextCount));
+		IntBuffer slots = slotTable(contextBuffer, words.size());
+		IntBuffer rowCounts = IntBuffer.wrap(Arrays.copyOf(counts, size));
+		if (!ranked) {
+			return new MarkovModel(order, words, contextBuffer, slots, IntBuffer.wrap(offsets),
+					IntBuffer.wrap(Arrays.copyOf(successors, size)), rowCounts, null, null, null);
+		}
+		return new MarkovModel(order, words, contextBuffer, slots, IntBuffer.wrap(offsets),
+				IntBuffer.wrap(Arrays.copyOf(successors, size)), rowCounts, IntBuffer.wrap(totals),
+				IntBuffer.wrap(Arrays.copyOf(thresholds, size)), IntBuffer.wrap(Arrays.copyOf(aliases, size)));
+	}
+
+	/**
+	 * Sorts words of a vocabulary lexicographically with a merge sort, so their
+	 * ids are never boxed.
+	 *
+	 * @param ids        - ids of the words to sort
+	 * @param length     - number of ids to sort, from the start of the array
+	 * @param vocabulary - the words the ids refer to
+	 */
+	private static void sort(int[] ids, int length, WordArena vocabulary) {
+		int[] from = ids;
+		int[] to = new int[length];
+		for (int width = 1; width < length; width *= 2) {
+			for (int low = 0; low < length; low += 2 * width) {
+				int middle = Math.min(low + width, length);
+				int high = Math.min(low + 2 * width, length);
+				int i = low;
+				int j = middle;
+				for (int k = low; k < high; k++) {
+					if (j == high || (i < middle && vocabulary.compare(from[i], from[j]) <= 0)) {
+						to[k] = from[i++];
+					} else {
+						to[k] = from[j++];
+					}
+				}
+			}
+			int[] swap = from;
+			from = to;
+			to = swap;
+		}
+		if (from != ids) {
+			System.arraycopy(from, 0, ids, 0, length);
+		}
+	}
+
+	/**
+	 * Rewrites a context in terms of different word ids.
+	 *
+	 * @param context - the packed context
+	 * @param idMap   - the new id of every old id
+	 * @param order   - number of words in the longest context
+	 * @return the same context with the new ids
+	 */
+	private static long remap(long context, int[] idMap, int order) {
+		long result = 0;
+		for (int back = ContextKeys.length(context, order) - 1; back >= 0; back--) {
+			result = ContextKeys.append(result, idMap[ContextKeys.word(context, back, order)], order);
+		}
+		return result;
+	}
+
+	/**
+	 * Builds the open-addressing table that finds the row of a longer context.
+	 * Each slot holds a row number, or zero if it is empty, which can never be
+	 * the row of a longer context since those come after every word row.
+	 *
+	 * @param contexts  - the context of each row after the word rows
+	 * @param wordCount - number of word rows
+	 * @return a table at most half full, or an empty table if there are none
+	 */
+	private static IntBuffer slotTable(LongBuffer contexts, int wordCount) {
+		if (contexts.limit() == 0) {
+			return IntBuffer.allocate(0);
+		}
+		int[] slots = new int[Integer.highestOneBit(contexts.limit()) * 4];
+		int mask = slots.length - 1;
+		for (int i = 0; i < contexts.limit(); i++) {
+			int slot = LongIntMap.slot(contexts.get(i), mask);
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = wordCount + i;
+		}
+		return IntBuffer.wrap(slots);
+	}
+
+	/**
+	 * Merges two rows of (successor id << 32 | count) pairs, both sorted by id,
+	 * adding the counts of ids that appear in both.
+	 *
+	 * @param a - the first row
+	 * @param b - the second row
+	 * @return one row sorted by id
+	 */
+	private static long[] merge(long[] a, long[] b) {
+		long[] row = new long[a.length + b.length];
+		int i = 0;
+		int j = 0;
+		int size = 0;
+		while (i < a.length || j < b.length) {
+			long idA = i < a.length ? a[i] >>> 32 : Long.MAX_VALUE;
+			long idB = j < b.length ? b[j] >>> 32 : Long.MAX_VALUE;
+			if (idA < idB) {
+				row[size++] = a[i++];
+			} else if (idB < idA) {
+				row[size++] = b[j++];
+			} else {
+				row[size++] = a[i++] + (int) b[j++];
+			}
+		}
+		return Arrays.copyOf(row, size);
+	}
+
+	/**
+	 * Sorts a row of (successor id << 32 | count) pairs by rank: descending count,
+	 * then ascending id. Packing (MAX_VALUE - count) above the id gives keys whose
+	 * natural order is exactly that ranking, the ordering the old
+	 * WordFrequencyComparator used.
+	 *
+	 * @param row - the row to sort in place
+	 */
+	private static void rank(long[] row) {
+		for (int i = 0; i < row.length; i++) {
+			row[i] = (long) (Integer.MAX_VALUE - (int) row[i]) << 32 | row[i] >>> 32;
+		}
+		Arrays.sort(row);
+		for (int i = 0; i < row.length; i++) {
+			row[i] = (row[i] & 0xFFFFFFFFL) << 32 | Integer.MAX_VALUE - (int) (row[i] >>> 32);
+		}
+	}
+
+	/**
+	 * Builds the alias table of one row. Every slot of the row is given an equal
+	 * share of the row total scaled by the row size, which it fills first with
+	 * its own scaled count and then, if that falls short, with part of the
+	 * surplus of a larger slot (its alias). Because all of this is done in whole
+	 * numbers, drawing a slot and then a number below the row total picks each
+	 * word with probability exactly proportional to its count.
+	 *
+	 * @param counts     - the counts of every row
+	 * @param start      - first position of the row
+	 * @param end        - position just past the row
+	 * @param thresholds - receives, for each slot, the draws out of the row total
+	 *                   that keep it
+	 * @param aliases    - receives, for each slot, the position within the row
+	 *                   used otherwise
+	 * @return the row total
+	 */
+	private static int buildAlias(int[] counts, int start, int end, int[] thresholds, int[] aliases) {
+		int size = end - start;
+		long total = 0;
+		for (int i = start; i < end; i++) {
+			total += counts[i];
+		}
+
+		long[] weights = new long[size];
+		int[] small = new int[size];
+		int[] large = new int[size];
+		int smallSize = 0;
+		int largeSize = 0;
+		for (int i = 0; i < size; i++) {
+			weights[i] = (long) counts[start + i] * size;
+			if (weights[i] < total) {
+				small[smallSize++] = i;
+			} else {
+				large[largeSize++] = i;
+			}
+		}
+
+		while (smallSize > 0 && largeSize > 0) {
+			int lesser = small[--smallSize];
+			int greater = large[largeSize - 1];
+			thresholds[start + lesser] = (int) weights[lesser];
+			aliases[start + lesser] = greater;
+			weights[greater] -= total - weights[lesser];
+			if (weights[greater] < total) {
+				largeSize--;
+				small[smallSize++] = greater;
+			}
+		}
+
+		// The scaled counts sum to exactly size * total, so whatever is left is full
+		while (largeSize > 0) {
+			int full = large[--largeSize];
+			thresholds[start + full] = (int) total;
+			aliases[start + full] = full;
+		}
+		while (smallSize > 0) {
+			int full = small[--smallSize];
+			thresholds[start + full] = (int) total;
+			aliases[start + full] = full;
+		}
+
+		return (int) total;
+	}
+
+	/**
+	 * Sorts the subsequent words of every context once by rank, so that the most
+	 * probable words can be read straight off the front of each row, and builds
+	 * the alias table of every row. The words, contexts and row offsets are
+	 * shared with this model.
+	 *
+	 * @return a frozen copy of this model, or this model if it is already frozen
+	 */
+	MarkovModel freeze() {
+		if (ranked) {
+			return this;
+		}
+
+		int[] rankedSuccessors = new int[successors.limit()];
+		int[] rankedCounts = new int[counts.limit()];
+		int[] totals = new int[rowCount()];
+		int[] thresholds = new int[successors.limit()];
+		int[] aliases = new int[successors.limit()];
+		for (int row = 0; row < totals.length; row++) {
+			int start = offsets.get(row);
+			long[] pairs = new long[fanout(row)];
+			for (int i = 0; i < pairs.length; i++) {
+				pairs[i] = (long) successors.get(start + i) << 32 | counts.get(start + i);
+			}
+			rank(pairs);
+			for (int i = 0; i < pairs.length; i++) {
+				rankedSuccessors[start + i] = (int) (pairs[i] >>> 32);
+				rankedCounts[start + i] = (int) pairs[i];
+			}
+			totals[row] = buildAlias(rankedCounts, start, start + pairs.length, thresholds, aliases);
+		}
+		return new MarkovModel(order, words, contexts, contextSlots, offsets, IntBuffer.wrap(rankedSuccessors),
+				IntBuffer.wrap(rankedCounts), IntBuffer.wrap(totals), IntBuffer.wrap(thresholds),
+				IntBuffer.wrap(aliases));
+	}
+
+	/**
+	 * Finds the id of a word.
+	 *
+	 * @param word - the word to look up
+	 * @return the id of the word, or -1 if it is not in the model
+	 */
+	int idOf(String word) {
+		return words.idOf(word);
+	}
+
+	/**
+	 * Returns the number of rows, one for every word and every longer context.
+	 *
+	 * @return the number of rows
+	 */
+	private int rowCount() {
+		return offsets.limit() - 1;
+	}
+
+	/**
+	 * Returns the number of subsequent words in a row.
+	 *
+	 * @param row - the row, or -1 for no row
+	 * @return the number of distinct words seen after its context
+	 */
+	private int fanout(int row) {
+		return row < 0 ? 0 : offsets.get(row + 1) - offsets.get(row);
+	}
+
+	/**
+	 * Finds the row of the longest part of a context that was seen followed by a
+	 * word. A single word is its own row, and longer contexts are looked up in
+	 * the open-addressing table.
+	 *
+	 * @param context - the last few words, packed by ContextKeys
+	 * @return the row, or -1 if not even the last word was followed by anything
+	 */
+	private int row(long context) {
+		if (contextSlots.limit() > 0) {
+			int mask = contextSlots.limit() - 1;
+			for (int length = ContextKeys.length(context, order); length > 1; length--) {
+				long key = ContextKeys.suffix(context, length, order);
+				for (int slot = LongIntMap.slot(key, mask); contextSlots.get(slot) != 0; slot = (slot + 1) & mask) {
+					int row = contextSlots.get(slot);
+					if (contexts.get(row - words.size()) == key) {
+						return row;
+					}
+				}
+			}
+		}
+		int word = ContextKeys.word(context, 0, order);
+		return fanout(word) > 0 ? word : -1;
+	}
+
+	/**
+	 * Finds the most frequent subsequent word of a row, breaking ties with the
+	 * lexicographical ordering of the words. A frozen model keeps it first in the
+	 * row, and any other model scans the row once and remembers the answer.
+	 *
+	 * @param row - the row, which must have at least one subsequent word
+	 * @return id of the most probable next word
+	 */
+	private int best(int row) {
+		if (ranked) {
+			return successors.get(offsets.get(row));
+		}
+		IntBuffer cache = bestCache;
+		if (cache == null) {
+			cache = offsets.isDirect() ? DirectBuffers.ints(rowCount()) : IntBuffer.allocate(rowCount());
+			bestCache = cache;
+		}
+		if (cache.get(row) != 0) {
+			return cache.get(row) - 1;
+		}
+
+		int bestWord = -1;
+		int bestFreq = -1;
+		int end = offsets.get(row + 1);
+		for (int i = offsets.get(row); i < end; i++) {
+			if (counts.get(i) > bestFreq) { // rows are sorted by id, so the first of a tie wins
+				bestWord = successors.get(i);
+				bestFreq = counts.get(i);
+			}
+		}
+		cache.put(row, bestWord + 1);
+		return bestWord;
+	}
+
+	/**
+	 * Generates the k most probable words that could come after the seed word, in
+	 * descending order of frequency with ties broken lexicographically. Takes
+	 * O(k) time once the model is frozen, and O(n log n) in the number of
+	 * subsequent words before that.
+	 *
+	 * @param seed    - the starting word
+	 * @param kAmount - the number of probable words to return
+	 * @return the words separated by a space, or an empty string if the seed has
+	 *         no subsequent words
+	 */
+	String generateProbable(String seed, int kAmount) {
+		int id = idOf(seed);
+		int size = fanout(id);
+		if (size == 0) {
+			return "";
+		}
+
+		int count = Math.min(kAmount, size);
+		int start = offsets.get(id);
+		long[] row = null;
+		if (!ranked) {
+			row = new long[size];
+			for (int i = 0; i < size; i++) {
+				row[i] = (long) successors.get(start + i) << 32 | counts.get(start + i);
+			}
+			rank(row);
+		}
+
+		StringBuilder result = new StringBuilder();
+
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				result.append(" ");
+			}
+			words.appendTo(result, ranked ? successors.get(start + i) : (int) (row[i] >>> 32));
+		}
+
+		return result.toString();
+	}
+
+	/**
+	 * Generates k words by always following the most probable next word of the
+	 * longest context seen. A context with no subsequent words is followed by the
+	 * seed again. Since every context always leads to the same next word, the
+	 * walk soon comes back to a context it has been in and repeats itself from
+	 * there, so the rest of the output is copied from the repeating part.
+	 *
+	 * @param seed    - the first word of the output
+	 * @param kAmount - number of words to be generated
+	 * @return the words separated by a space
+	 */
+	String generateDeterminstic(String seed, int kAmount) {
+		return generate(new Walk(seed, null), kAmount);
+	}
+
+	/**
+	 * Generates k words by picking each next word at random, weighted by how
+	 * often it followed the longest context seen. A context with no subsequent
+	 * words is followed by the seed again. Each word takes constant time once the
+	 * model is frozen, and time linear in the number of subsequent words before
+	 * that.
+	 *
+	 * @param seed    - the first word of the output
+	 * @param kAmount - number of words to be generated
+	 * @return the words separated by a space
+	 */
+	String generateRandom(String seed, int kAmount) {
+		return generateRandom(seed, kAmount, new Random());
+	}
+
+	/**
+	 * Generates k words like generateRandom, drawing from the given source of
+	 * randomness.
+	 *
+	 * @param seed    - the first word of the output
+	 * @param kAmount - number of words to be generated
+	 * @param random  - source of randomness, used only by this call
+	 * @return the words separated by a space
+	 */
+	String generateRandom(String seed, int kAmount, RandomGenerator random) {
+		return generate(new Walk(seed, random), kAmount);
+	}
+
+	/**
+	 * Writes the same words as generateDeterminstic to a stream as they are
+	 * generated, so memory use does not grow with k.
+	 *
+	 * @param seed    - the first word of the output
+	 * @param kAmount - number of words to be generated
+	 * @param out     - where to write the words, separated by a space
+	 * @throws IOException if the stream cannot be written
+	 */
+	void generateDeterminstic(String seed, long kAmount, OutputStream out) throws IOException {
+		generate(new Walk(seed, null), kAmount, new WordWriter(out, words, kAmount * 8 + 64));
+	}
+
+	/**
+	 * Writes words picked like generateRandom to a stream as they are
+	 * generated, so memory use does not grow with k.
+	 *
+	 * @param seed    - the first word of the output
+	 * @param kAmount - number of words to be generated
+	 * @param out     - where to write the words, separated by a space
+	 * @throws IOException if the stream cannot be written
+	 */
+	void generateRandom(String seed, long kAmount, OutputStream out) throws IOException {
+		generateRandom(seed, kAmount, new Random(), out);
+	}
+
+	/**
+	 * Writes words picked like generateRandom to a stream as they are
+	 * generated, drawing from the given source of randomness.
+	 *
+	 * @param seed    - the first word of the output
+	 * @param kAmount - number of words to be generated
+	 * @param random  - source of randomness, used only by this call
+	 * @param out     - where to write the words, separated by a space
+	 * @throws IOException if the stream cannot be written
+	 */
+	void generateRandom(String seed, long kAmount, RandomGenerator random, OutputStream out) throws IOException {
+		generate(new Walk(seed, random), kAmount, new WordWriter(out, words, kAmount * 8 + 64));
+	}
+
+	/**
+	 * Collects the first k words of a walk, starting with the seed.
+	 *
+	 * @param walk    - the walk to take
+	 * @param kAmount - number of words to be generated
+	 * @return the words separated by a space
+	 */
+	private String generate(Walk walk, int kAmount) {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try {
+			generate(walk, kAmount, new WordWriter(result, words, kAmount * 8 + 64));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // never thrown by a ByteArrayOutputStream
+		}
+		return result.toString(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the first k words of a walk, starting with the seed, and flushes the
+	 * stream without closing it. A deterministic walk remembers the context
+	 * before each step, and once it meets one of them again, the words from that
+	 * step on are written over and over until k words are written.
+	 *
+	 * @param walk    - the walk to take
+	 * @param kAmount - number of words to be generated
+	 * @param writer  - where to write the words, separated by a space
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void generate(Walk walk, long kAmount, WordWriter writer) throws IOException {
+		byte[] seed = walk.seed.getBytes(StandardCharsets.UTF_8);
+		if (kAmount > 0) {
+			writer.write(seed);
+		}
+
+		boolean searching = walk.random == null;
+		LongIntMap seen = searching ? new LongIntMap(16) : null;
+		int[] path = searching ? new int[16] : null;
+		int steps = 0;
+		for (long i = 1; i < kAmount; i++) {
+			if (searching) {
+				int first = seen.putIfAbsent(walk.context, steps);
+				if (first >= 0) {
+					repeat(writer, Arrays.copyOfRange(path, first, steps), seed, kAmount - i);
+					break;
+				}
+				if (steps == path.length) {
+					path = Arrays.copyOf(path, steps * 2);
+				}
+				searching = steps < MAX_CYCLE_SEARCH;
+			}
+
+			int next = walk.next();
+			if (searching) {
+				path[steps++] = next;
+			}
+			writer.write((byte) ' ');
+			if (next >= 0) {
+				writer.write(next);
+			} else {
+				writer.write(seed);
+			}
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Writes the words of a cycle over and over. The whole cycle is laid out as
+	 * bytes once and then copied in bulk.
+	 *
+	 * @param writer - where to write the words
+	 * @param cycle  - ids of the words of the cycle, or -1 for the seed
+	 * @param seed   - bytes of the seed
+	 * @param amount - number of words to write
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void repeat(WordWriter writer, int[] cycle, byte[] seed, long amount) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		WordWriter cycleWriter = new WordWriter(bytes, words, cycle.length * 8L + 64);
+		for (int next : cycle) {
+			cycleWriter.write((byte) ' ');
+			if (next >= 0) {
+				cycleWriter.write(next);
+			} else {
+				cycleWriter.write(seed);
+			}
+		}
+		cycleWriter.flush();
+		byte[] laidOut = bytes.toByteArray();
+
+		for (long i = amount / cycle.length; i > 0; i--) {
+			writer.write(laidOut);
+		}
+		for (int i = 0; i < amount % cycle.length; i++) {
+			writer.write((byte) ' ');
+			if (cycle[i] >= 0) {
+				writer.write(cycle[i]);
+			} else {
+				writer.write(seed);
+			}
+		}
+	}
+
+	/**
+	 * Picks a subsequent word of a row at random, weighted by its count. A frozen
+	 * model uses the alias table of the row, and any other model walks the
+	 * cumulative counts of the row.
+	 *
+	 * @param row    - the row, which must have at least one subsequent word
+	 * @param random - source of randomness
+	 * @return id of the picked word
+	 */
+	private int sample(int row, RandomGenerator random) {
+		int start = offsets.get(row);
+		if (ranked) {
+			int slot = random.nextInt(fanout(row));
+			if (random.nextInt(totals.get(row)) >= thresholds.get(start + slot)) {
+				slot = aliases.get(start + slot);
+			}
+			return successors.get(start + slot);
+		}
+
+		int end = offsets.get(row + 1);
+		int totalOccurrences = 0;
+		for (int i = start; i < end; i++) {
+			totalOccurrences += counts.get(i);
+		}
+
+		int randomIndex = random.nextInt(totalOccurrences);
+		int i = start;
+		int cumulativeCount = counts.get(i);
+		while (cumulativeCount <= randomIndex) {
+			cumulativeCount += counts.get(++i);
+		}
+		return successors.get(i);
+	}
+
+	/**
+	 * Returns a model with the same tables held outside the Java heap, so the
+	 * garbage collector does not have to scan or copy them however large the
+	 * model is. Tables that are already direct, such as those of a mapped
+	 * snapshot, are shared rather than copied.
+	 *
+	 * @return the model off the heap, or this model if it already is
+	 */
+	MarkovModel offHeap() {
+		if (isOffHeap()) {
+			return this;
+		}
+		return new MarkovModel(order, words.offHeap(), DirectBuffers.of(contexts), DirectBuffers.of(contextSlots),
+				DirectBuffers.of(offsets), DirectBuffers.of(successors), DirectBuffers.of(counts),
+				ranked ? DirectBuffers.of(totals) : null, ranked ? DirectBuffers.of(thresholds) : null,
+				ranked ? DirectBuffers.of(aliases) : null);
+	}
+
+	/**
+	 * Returns true if every table of the model is held outside the Java heap.
+	 *
+	 * @return true if the model is off the heap
+	 */
+	boolean isOffHeap() {
+		return words.getBytes().isDirect() && words.getStarts().isDirect() && contexts.isDirect()
+				&& contextSlots.isDirect() && offsets.isDirect() && successors.isDirect() && counts.isDirect()
+				&& (!ranked || totals.isDirect() && thresholds.isDirect() && aliases.isDirect());
+	}
+
+	/**
+	 * Returns true if the rows are sorted by rank and have alias tables.
+	 *
+	 * @return true if the model is frozen
+	 */
+	boolean isFrozen() {
+		return ranked;
+	}
+
+	/**
+	 * Gets the number of words in the longest context.
+	 *
+	 * @return the order
+	 */
+	int getOrder() {
+		return order;
+	}
+
+	/**
+	 * Gets the table of every word.
+	 *
+	 * @return the words
+	 */
+	WordTable getWords() {
+		return words;
+	}
+
+	/**
+	 * Gets the packed context of every row after the word rows.
+	 *
+	 * @return the longer contexts
+	 */
+	LongBuffer getContexts() {
+		return contexts.duplicate();
+	}
+
+	/**
+	 * Gets the open-addressing table of the rows of longer contexts.
+	 *
+	 * @return the context slots
+	 */
+	IntBuffer getContextSlots() {
+		return contextSlots.duplicate();
+	}
+
+	/**
+	 * Gets the start of each row, plus the end of the last row.
+	 *
+	 * @return the row offsets
+	 */
+	IntBuffer getOffsets() {
+		return offsets.duplicate();
+	}
+
+	/**
+	 * Gets the ids of the subsequent words of every row.
+	 *
+	 * @return the successor ids
+	 */
+	IntBuffer getSuccessors() {
+		return successors.duplicate();
+	}
+
+	/**
+	 * Gets the frequency of each subsequent word.
+	 *
+	 * @return the counts
+	 */
+	IntBuffer getCounts() {
+		return counts.duplicate();
+	}
+
+	/**
+	 * Gets the sum of the counts of each row.
+	 *
+	 * @return the row totals, or null if the model is not frozen
+	 */
+	IntBuffer getTotals() {
+		return ranked ? totals.duplicate() : null;
+	}
+
+	/**
+	 * Gets the draws out of the row total that keep each slot.
+	 *
+	 * @return the alias thresholds, or null if the model is not frozen
+	 */
+	IntBuffer getThresholds() {
+		return ranked ? thresholds.duplicate() : null;
+	}
+
+	/**
+	 * Gets the position within its row to use instead of each slot.
+	 *
+	 * @return the aliases, or null if the model is not frozen
+	 */
+	IntBuffer getAliases() {
+		return ranked ? aliases.duplicate() : null;
+	}
+
+	/**
+	 * Walks the chain from a seed one word at a time, sliding a window of the
+	 * last order words along. Only the window is kept, so a walk of any length
+	 * takes constant memory.
+	 */
+	private class Walk {
+
+		private final String seed;
+		private final long seedContext;
+		private final RandomGenerator random;
+		private long context;
+
+		/**
+		 * Starts a walk at a seed.
+		 *
+		 * @param seed   - the first word of the walk
+		 * @param random - source of randomness for picking each next word, or null
+		 *               to always follow the most probable one
+		 */
+		Walk(String seed, RandomGenerator random) {
+			int seedId = idOf(seed);
+			this.seed = seed;
+			this.seedContext = seedId < 0 ? 0 : ContextKeys.append(0, seedId, order);
+			this.random = random;
+			this.context = seedContext;
+		}
+
+		/**
+		 * Steps to the next word.
+		 *
+		 * @return id of the next word, or -1 if the context had no subsequent
+		 *         words and the walk starts over at the seed
+		 */
+		int next() {
+			int row = row(context);
+			if (row < 0) {
+				context = seedContext;
+				return -1;
+			}
+			int next = random == null ? best(row) : sample(row, random);
+			context = ContextKeys.append(context, next, order);
+			return next;
+		}
+	}
+}
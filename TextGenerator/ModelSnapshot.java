@@ -0,0 +1,337 @@
+package comprehensive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves compiled MarkovModels to a binary snapshot file and loads them back by
+ * memory-mapping the file, so loading a model costs about as much as paging in
+ * the parts of it that are used rather than rebuilding it from text.
+ *
+ * A snapshot is a 36 byte header followed by the tables of the model, all
+ * little-endian and each starting on an 8 byte boundary:
+ *
+ * <pre>
+ * header      magic, version, flags (1 = frozen), order, word count W, longer
+ *             context count C, context slot count S, pair count P, and the
+ *             byte length of all words, as nine ints
+ * starts      int[W + 1]      where each word begins in the word bytes
+ * words       byte[]          every word back to back, in sorted order
+ * contexts    long[C]         packed context of each row after the word rows
+ * slots       int[S]          open-addressing table of those rows
+ * offsets     int[W + C + 1]  where each row begins
+ * successors  int[P]          ids of subsequent words
+ * counts      int[P]          frequency of each subsequent word
+ * totals      int[W + C]      sum of each row (frozen only)
+ * thresholds  int[P]          alias thresholds (frozen only)
+ * aliases     int[P]          alias positions (frozen only)
+ * </pre>
+ *
+ * Each table is mapped separately, so a single table may not exceed 2 GB.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+class ModelSnapshot {
+
+	static final int MAGIC = 0x4D4B4348; // "MKCH"
+	static final int VERSION = 2;
+
+	private static final int HEADER_SIZE = 36;
+	private static final int FROZEN = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Writes a model to a snapshot file, replacing the file if it exists. The
+	 * snapshot is written to a temporary file next to it first and then renamed
+	 * over it, so a model still mapped from the old file, even the model being
+	 * saved, keeps reading the old tables.
+	 *
+	 * @param model - the model to save
+	 * @param file  - where to save it
+	 * @throws IOException if the file cannot be written
+	 */
+	static void save(MarkovModel model, File file) throws IOException {
+		Path target = file.getAbsoluteFile().toPath();
+		Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+		try {
+			write(model, temporary);
+			try {
+				Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Writes a model to a new snapshot file.
+	 *
+	 * @param model - the model to write
+	 * @param path  - the empty file to write it to
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void write(MarkovModel model, Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			WordTable words = model.getWords();
+			ByteBuffer wordBytes = words.getBytes();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(model.isFrozen() ? FROZEN : 0).putInt(model.getOrder())
+					.putInt(words.size()).putInt(model.getContexts().limit()).putInt(model.getContextSlots().limit())
+					.putInt(model.getSuccessors().limit()).putInt(wordBytes.limit()).flip();
+			writeFully(channel, header);
+			pad(channel);
+
+			writeInts(channel, words.getStarts());
+			writeFully(channel, wordBytes);
+			pad(channel);
+			writeLongs(channel, model.getContexts());
+			writeInts(channel, model.getContextSlots());
+			writeInts(channel, model.getOffsets());
+			writeInts(channel, model.getSuccessors());
+			writeInts(channel, model.getCounts());
+			if (model.isFrozen()) {
+				writeInts(channel, model.getTotals());
+				writeInts(channel, model.getThresholds());
+				writeInts(channel, model.getAliases());
+			}
+		}
+	}
+
+	/**
+	 * Loads a model by memory-mapping a snapshot file. The tables are read from
+	 * the mapping as they are used and are never copied onto the heap.
+	 *
+	 * @param file - the snapshot to load
+	 * @return the model in the snapshot
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	static MarkovModel load(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header);
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+				throw new IOException(file + " is not a model snapshot");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported snapshot version " + version + " in " + file);
+			}
+			boolean frozen = (header.getInt() & FROZEN) != 0;
+			int order = header.getInt();
+			int wordCount = header.getInt();
+			int contextCount = header.getInt();
+			int slotCount = header.getInt();
+			int pairCount = header.getInt();
+			int byteCount = header.getInt();
+			ContextKeys.checkOrder(order);
+			long rowCount = (long) wordCount + contextCount;
+			if (wordCount < 0 || contextCount < 0 || slotCount < 0 || pairCount < 0 || byteCount < 0
+					|| rowCount >= Integer.MAX_VALUE) {
+				throw new IOException("Snapshot header of " + file + " has impossible table sizes");
+			}
+
+			Mapper mapper = new Mapper(channel, aligned(HEADER_SIZE));
+			IntBuffer starts = mapper.ints(wordCount + 1);
+			WordTable words = new WordTable(mapper.bytes(byteCount), starts);
+			LongBuffer contexts = mapper.longs(contextCount);
+			IntBuffer slots = mapper.ints(slotCount);
+			IntBuffer offsets = mapper.ints((int) rowCount + 1);
+			IntBuffer successors = mapper.ints(pairCount);
+			IntBuffer counts = mapper.ints(pairCount);
+			if (starts.get(0) != 0 || starts.get(wordCount) != byteCount || offsets.get(0) != 0
+					|| offsets.get((int) rowCount) != pairCount) {
+				throw new IOException("Snapshot tables of " + file + " do not match its header");
+			}
+			if (!frozen) {
+				return new MarkovModel(order, words, contexts, slots, offsets, successors, counts, null, null, null);
+			}
+			IntBuffer totals = mapper.ints(wordCount + contextCount);
+			IntBuffer thresholds = mapper.ints(pairCount);
+			IntBuffer aliases = mapper.ints(pairCount);
+			return new MarkovModel(order, words, contexts, slots, offsets, successors, counts, totals, thresholds,
+					aliases);
+		}
+	}
+
+	/**
+	 * Returns true if the file begins like a snapshot.
+	 *
+	 * @param file - the file to check
+	 * @return true if the file starts with the snapshot magic number
+	 * @throws IOException if the file cannot be read
+	 */
+	static boolean isSnapshot(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, magic);
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * Reads until the buffer is full or the file ends.
+	 *
+	 * @param channel - where to read from
+	 * @param buffer  - where to read to
+	 * @throws IOException if the channel cannot be read
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) == -1) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes every remaining int of a buffer, then pads to an 8 byte boundary.
+	 *
+	 * @param channel - where to write
+	 * @param ints    - the ints to write
+	 * @throws IOException if the channel cannot be written
+	 */
+	private static void writeInts(FileChannel channel, IntBuffer ints) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while (ints.hasRemaining()) {
+			IntBuffer view = buffer.clear().asIntBuffer();
+			int length = Math.min(view.capacity(), ints.remaining());
+			view.put(ints.slice().limit(length));
+			ints.position(ints.position() + length);
+			buffer.limit(length * Integer.BYTES);
+			writeFully(channel, buffer);
+		}
+		pad(channel);
+	}
+
+	/**
+	 * Writes every remaining long of a buffer, then pads to an 8 byte boundary.
+	 *
+	 * @param channel - where to write
+	 * @param longs   - the longs to write
+	 * @throws IOException if the channel cannot be written
+	 */
+	private static void writeLongs(FileChannel channel, LongBuffer longs) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while (longs.hasRemaining()) {
+			LongBuffer view = buffer.clear().asLongBuffer();
+			int length = Math.min(view.capacity(), longs.remaining());
+			view.put(longs.slice().limit(length));
+			longs.position(longs.position() + length);
+			buffer.limit(length * Long.BYTES);
+			writeFully(channel, buffer);
+		}
+		pad(channel);
+	}
+
+	/**
+	 * Writes every remaining byte of a buffer.
+	 *
+	 * @param channel - where to write
+	 * @param bytes   - the bytes to write
+	 * @throws IOException if the channel cannot be written
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+
+	/**
+	 * Writes zeros until the channel is at an 8 byte boundary.
+	 *
+	 * @param channel - where to write
+	 * @throws IOException if the channel cannot be written
+	 */
+	private static void pad(FileChannel channel) throws IOException {
+		long position = channel.position();
+		writeFully(channel, ByteBuffer.allocate((int) (aligned(position) - position)));
+	}
+
+	/**
+	 * Rounds a position up to the next 8 byte boundary.
+	 *
+	 * @param position - the position to round
+	 * @return the first multiple of 8 that is not before it
+	 */
+	private static long aligned(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	/**
+	 * Maps the tables of a snapshot one after another.
+	 */
+	private static class Mapper {
+
+		private final FileChannel channel;
+		private long position;
+
+		/**
+		 * Creates a mapper that starts at the given position.
+		 *
+		 * @param channel  - the snapshot file
+		 * @param position - where the first table begins
+		 */
+		Mapper(FileChannel channel, long position) {
+			this.channel = channel;
+			this.position = position;
+		}
+
+		/**
+		 * Maps the next table as bytes.
+		 *
+		 * @param length - number of bytes in the table
+		 * @return a read-only view of the table
+		 * @throws IOException if the file is too short or cannot be mapped
+		 */
+		ByteBuffer bytes(long length) throws IOException {
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("Snapshot table is larger than 2 GB");
+			}
+			if (position + length > channel.size()) {
+				throw new IOException("Snapshot is truncated");
+			}
+			ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			position = aligned(position + length);
+			return table;
+		}
+
+		/**
+		 * Maps the next table as ints.
+		 *
+		 * @param length - number of ints in the table
+		 * @return a read-only view of the table
+		 * @throws IOException if the file is too short or cannot be mapped
+		 */
+		IntBuffer ints(int length) throws IOException {
+			return bytes((long) length * Integer.BYTES).asIntBuffer();
+		}
+
+		/**
+		 * Maps the next table as longs.
+		 *
+		 * @param length - number of longs in the table
+		 * @return a read-only view of the table
+		 * @throws IOException if the file is too short or cannot be mapped
+		 */
+		LongBuffer longs(int length) throws IOException {
+			return bytes((long) length * Long.BYTES).asLongBuffer();
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package comprehensive;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Answers generation queries against one model for as long as it runs, so the
+ * model is built or loaded once instead of once per query. A query is a line of
+ * the form "seed k mode", and its answer is the generated words on one line, or
+ * a line starting with "error:" if the query is malformed.
+ *
+ * Queries are read from standard input, or from connections to a local TCP
+ * port or Unix domain socket. Every query on standard input and every
+ * connection is handled on its own virtual thread. The model is frozen before
+ * the first query and only read afterward through a FrozenModel, so all of
+ * them share it without locking, and random walks draw from the random
+ * generator of their own thread. A throughput and latency report is printed
+ * when the server stops. A server on a port or socket only stops with the
+ * process, so its report has to be printed from a shutdown hook.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+class QueryServer {
+
+	/** How many queries on standard input may be in flight at once. */
+	private static final int PIPELINE_DEPTH = 1024;
+
+	/** Largest TCP port number. */
+	private static final int MAX_PORT = 65535;
+
+	/** Marks the end of the queries on standard input. */
+	private static final Future<String> END = CompletableFuture.completedFuture(null);
+
+	private final FrozenModel model;
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final long started;
+
+	/**
+	 * Creates a server for a model, freezing it so it can be shared.
+	 *
+	 * @param markovChain - the model to answer queries from
+	 */
+	QueryServer(TextProbability markovChain) {
+		model = markovChain.frozen();
+		started = System.nanoTime();
+	}
+
+	/**
+	 * Answers one query, recording how long it took.
+	 *
+	 * @param query - a line of the form "seed k mode"
+	 * @return the generated words, or an error message starting with "error:"
+	 */
+	String answer(String query) {
+		long start = System.nanoTime();
+		String result;
+		try {
+			result = model.generate(GenerationRequest.parse(query), ThreadLocalRandom.current());
+		} catch (IllegalArgumentException e) {
+			result = "error: " + e.getMessage();
+		} catch (RuntimeException e) {
+			result = "error: " + e;
+		}
+		latencies.record(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Answers queries from a stream until it ends. Each query runs on its own
+	 * virtual thread, and the answers are written in the order the queries were
+	 * read.
+	 *
+	 * @param input  - where queries are read from
+	 * @param output - where answers are written
+	 * @throws IOException if the input cannot be read or the output written
+	 */
+	void serve(InputStream input, OutputStream output) throws IOException {
+		BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			Future<?> writer = executor.submit(() -> {
+				Writer out = new OutputStreamWriter(output, StandardCharsets.US_ASCII);
+				for (Future<String> answer = pending.take(); answer != END; answer = pending.take()) {
+					out.write(answerOf(answer));
+					out.write('\n');
+					if (pending.isEmpty()) {
+						out.flush();
+					}
+				}
+				out.flush();
+				return null;
+			});
+
+			BufferedReader in = new BufferedReader(new InputStreamReader(input, StandardCharsets.US_ASCII));
+			try {
+				for (String line = in.readLine(); line != null; line = in.readLine()) {
+					String query = line;
+					pending.put(executor.submit(() -> answer(query)));
+				}
+				pending.put(END);
+				writer.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Waits for the answer of a query on standard input. A query whose thread
+	 * failed is answered with an error, so one bad query does not stop the
+	 * answers to the others.
+	 *
+	 * @param answer - the pending answer
+	 * @return the answer, or an error message starting with "error:"
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static String answerOf(Future<String> answer) throws InterruptedException {
+		try {
+			return answer.get();
+		} catch (ExecutionException e) {
+			return "error: " + e.getCause();
+		}
+	}
+
+	/**
+	 * Returns true if an endpoint can be passed to serve: a port number from 0 to
+	 * 65535, or any other non-empty string, which is taken as a socket path.
+	 *
+	 * @param endpoint - the endpoint to check
+	 * @return true if it is a port number or a socket path
+	 */
+	static boolean isEndpoint(String endpoint) {
+		if (endpoint.isEmpty()) {
+			return false;
+		}
+		if (!isPort(endpoint)) {
+			return true;
+		}
+		return endpoint.length() <= 5 && Integer.parseInt(endpoint) <= MAX_PORT;
+	}
+
+	/**
+	 * Returns true if an endpoint is written as a port number rather than a path.
+	 *
+	 * @param endpoint - a non-empty endpoint
+	 * @return true if it is all digits
+	 */
+	private static boolean isPort(String endpoint) {
+		return endpoint.chars().allMatch(Character::isDigit);
+	}
+
+	/**
+	 * Answers queries from every connection to a local address until the process
+	 * is stopped. Each connection is handled on its own virtual thread and its
+	 * queries are answered one after another.
+	 *
+	 * @param endpoint - a port number to listen on at the loopback address, or
+	 *                 the path of a Unix domain socket to create
+	 * @throws IOException              if the address cannot be bound
+	 * @throws IllegalArgumentException if the endpoint is empty or the port
+	 *                                  number is out of range
+	 */
+	void serve(String endpoint) throws IOException {
+		if (!isEndpoint(endpoint)) {
+			throw new IllegalArgumentException("Invalid endpoint \"" + endpoint + "\"");
+		}
+		SocketAddress address;
+		ServerSocketChannel server;
+		if (isPort(endpoint)) {
+			address = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(endpoint));
+			server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+		} else {
+			removeStaleSocket(Path.of(endpoint));
+			address = UnixDomainSocketAddress.of(endpoint);
+			server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		}
+
+		try (server; ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			server.bind(address);
+			System.err.println("Listening on " + server.getLocalAddress());
+			while (true) {
+				SocketChannel connection = server.accept();
+				executor.submit(() -> {
+					try (connection) {
+						serveConnection(connection);
+					}
+					return null;
+				});
+			}
+		}
+	}
+
+	/**
+	 * Removes a socket file left behind by an earlier server at a path, so the
+	 * path can be bound again. Anything else at the path is left alone.
+	 *
+	 * @param path - the path of the Unix domain socket
+	 * @throws IOException if something other than a socket is at the path, or it
+	 *                     cannot be removed
+	 */
+	private static void removeStaleSocket(Path path) throws IOException {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		} catch (NoSuchFileException e) {
+			return;
+		}
+		if (!attributes.isOther()) {
+			throw new FileAlreadyExistsException(path.toString(), null, "not a socket, refusing to replace it");
+		}
+		Files.delete(path);
+	}
+
+	/**
+	 * Answers the queries of one connection until the client closes it.
+	 *
+	 * @param connection - the connection
+	 * @throws IOException if the connection fails
+	 */
+	private void serveConnection(SocketChannel connection) throws IOException {
+		BufferedReader in = new BufferedReader(Channels.newReader(connection, StandardCharsets.US_ASCII));
+		Writer out = Channels.newWriter(connection, StandardCharsets.US_ASCII);
+		for (String line = in.readLine(); line != null; line = in.readLine()) {
+			out.write(answer(line));
+			out.write('\n');
+			if (!in.ready()) {
+				out.flush();
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Prints how many queries were answered, how many per second since the server
+	 * started, and percentiles of how long each took.
+	 *
+	 * @param out - where to print the report
+	 */
+	void report(PrintStream out) {
+		long count = latencies.count();
+		double seconds = (System.nanoTime() - started) / 1e9;
+		out.printf("%d queries in %.3f s (%.1f queries/s)%n", count, seconds, count / seconds);
+		out.printf("latency p50 %s  p90 %s  p99 %s  p99.9 %s  max %s%n", micros(latencies.percentile(50)),
+				micros(latencies.percentile(90)), micros(latencies.percentile(99)),
+				micros(latencies.percentile(99.9)), micros(latencies.percentile(100)));
+	}
+
+	/**
+	 * Formats a duration in microseconds.
+	 *
+	 * @param nanos - the duration in nanoseconds
+	 * @return the formatted duration
+	 */
+	private static String micros(long nanos) {
+		return String.format("%.1f us", nanos / 1e3);
+	}
+}
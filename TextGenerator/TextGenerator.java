@@ -1,8 +1,8 @@
-
 package comprehensive;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
 
 /**
  * A text generator class that uses a Markov Chain model to generate text based
@@ -10,6 +10,27 @@ import java.io.FileNotFoundException;
  * words to generate (k), and a mode as command-line arguments. There are three
  * modes. Probable, deterministic, and random.
  * 
+ * An optional fifth argument sets the order of the model, the number of
+ * previous words each word depends on (1 by default, up to 3).
+ * 
+ * The file may be a text file or a model snapshot. It may also be a directory
+ * or a glob such as "shards/*.txt", in which case every matching file is read,
+ * concurrently, into one model. Running the program with a text file, "--save",
+ * a snapshot path and optionally an order builds and freezes the model once
+ * and saves it, so later runs can load it instead of reading the text again.
+ * A loaded model keeps the order it was saved with.
+ * 
+ * Running the program with a file, "--serve", and optionally an endpoint and an
+ * order builds or loads the model once and then answers "seed k mode" queries,
+ * one per line, until it is stopped. The endpoint is "-" for standard input (the
+ * default), a port number for a TCP port on the loopback address, or the path
+ * of a Unix domain socket. A throughput and latency report is printed to
+ * standard error when the server stops. On a port or socket the server runs
+ * until the process is stopped, so the report is printed by a shutdown hook:
+ * it appears on Ctrl-C or a normal kill, but not if the process is killed
+ * with SIGKILL. The served model is kept off the Java heap, so it does not
+ * lengthen garbage collection pauses.
+ * 
  * @author Nash Taylor and Jayden Whalen
  * @version April 19th, 2025
  */
@@ -17,30 +38,100 @@ public class TextGenerator {
 
 	public static void main(String[] args) {
 
-		TextProbability markovChain = new TextProbability();
-
 		String filePath = args[0];
+
+		if (args.length >= 3 && args[1].equals("--save")) {
+			int order = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+			try {
+				TextProbability markovChain = buildOrLoad(filePath, order);
+				markovChain.freeze();
+				markovChain.save(new File(args[2]));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			return;
+		}
+
+		if (args.length >= 2 && args[1].equals("--serve")) {
+			String endpoint = args.length > 2 ? args[2] : "-";
+			if (!endpoint.equals("-") && !QueryServer.isEndpoint(endpoint)) {
+				System.err.println("Invalid endpoint \"" + endpoint + "\"");
+				System.err.println("Usage: TextGenerator <file> --serve [- | <port> | <socket path>] [order]");
+				System.err.println("A port or socket serves until the process is stopped, and the report is"
+						+ " printed from a shutdown hook as it exits.");
+				return;
+			}
+			int order = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+			try {
+				TextProbability markovChain = buildOrLoad(filePath, order);
+				markovChain.storeOffHeap();
+				QueryServer server = new QueryServer(markovChain);
+				if (endpoint.equals("-")) {
+					server.serve(System.in, System.out);
+					server.report(System.err);
+				} else {
+					Runtime.getRuntime().addShutdownHook(new Thread(() -> server.report(System.err)));
+					server.serve(endpoint);
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			return;
+		}
+
 		String seedWord = args[1].toLowerCase();
-		int k = Integer.parseInt(args[2]);
+		long k = Long.parseLong(args[2]);
 		String mode = args[3];
+		int order = args.length > 4 ? Integer.parseInt(args[4]) : 1;
 
-		File file = new File(filePath);
+		TextProbability markovChain;
+		try {
+			markovChain = buildOrLoad(filePath, order);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
 
+		// Deterministic and random output is streamed, so it starts right away and
+		// takes the same memory for any k
 		try {
-			markovChain.buildMarkovChain(file);
-		} catch (FileNotFoundException e) {
+			switch (mode) {
+			case "probable" -> System.out.print(markovChain.generateProbable(seedWord,
+					(int) Math.min(k, Integer.MAX_VALUE)));
+			case "deterministic" -> markovChain.generateDeterminstic(seedWord, k, System.out);
+			case "random" -> markovChain.generateRandom(seedWord, k, System.out);
+			default -> throw new IllegalArgumentException("Invalid mode.");
+			}
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
 
-		String output = switch (mode) {
-		case "probable" -> markovChain.generateProbable(seedWord, k);
-		case "deterministic" -> markovChain.generateDeterminstic(seedWord, k);
-		case "random" -> markovChain.generateRandom(seedWord, k);
-		default -> throw new IllegalArgumentException("Invalid mode.");
-		};
+		System.out.println();
 
-		System.out.println(output);
+	}
 
+	/**
+	 * Loads the file if it is a model snapshot, or builds a model from it if it
+	 * is text. A directory or a glob builds one model from every file it
+	 * matches, with each file read on its own.
+	 * 
+	 * @param path  - a text file, a snapshot, a directory or a glob
+	 * @param order - order of the model to build from text
+	 * @return the model
+	 * @throws IOException if a file cannot be read
+	 */
+	private static TextProbability buildOrLoad(String path, int order) throws IOException {
+		List<File> files = TextProbability.findFiles(path);
+		if (files.size() == 1 && TextProbability.isSnapshot(files.get(0))) {
+			return TextProbability.load(files.get(0));
+		}
+		TextProbability markovChain = new TextProbability(order);
+		if (files.size() == 1) {
+			markovChain.buildMarkovChainInParallel(files.get(0));
+		} else {
+			markovChain.buildMarkovChain(files, false, Runtime.getRuntime().availableProcessors());
+		}
+		return markovChain;
 	}
 
-}
+}
\ No newline at end of file
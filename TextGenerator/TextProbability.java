@@ -1,14 +1,20 @@
 package comprehensive;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Random;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 /**
  * This class uses a Markov Chain to determine the probabilities of subsequent
@@ -16,80 +22,371 @@ import java.util.Scanner;
  * separated by a space, that can come after a seed word based on probable,
  * deterministic, and random occurrences in the file.
  * 
+ * Word pairs are counted in a BigramCounter while text is read, then compiled
+ * into a compact MarkovModel the first time words are generated (or when
+ * compile is called). Generation always runs against the compiled model.
+ * Freezing the model additionally ranks the subsequent words of every word up
+ * front, which makes generateProbable take O(k) time per query.
+ * 
+ * New text can be appended at any time. Only the pairs it contains are counted,
+ * and the next compile merges them into the rows they touch, re-ranking only
+ * those rows of a frozen model. The other rows are copied into the new model,
+ * so each compile still takes time linear in the size of the whole model.
+ * 
  * @author Nash Taylor and Jayden Whalen
  * @version April 19, 2025
  */
 public class TextProbability {
 
-	private Map<String, Map<String, Integer>> markovChain;
-	private ArrayList<String> validWords;
+	private final int order;
+	private BigramCounter counter;
+	private MarkovModel model;
+	private boolean offHeap;
 
 	/**
-	 * Constructor that initializes the Markov Chain and list of valid words.
+	 * Constructor that initializes a Markov Chain of order one, in which each
+	 * word depends only on the word before it.
 	 */
 	public TextProbability() {
-		markovChain = new HashMap<>();
-		validWords = new ArrayList<>();
+		this(1);
+	}
+
+	/**
+	 * Constructor that initializes a Markov Chain of the given order, in which
+	 * each word depends on up to that many words before it. Contexts shorter
+	 * than the order are counted too, and words are generated from the longest
+	 * context that was seen in the text.
+	 * 
+	 * @param order - number of previous words each word depends on, from 1 to 3
+	 * @throws IllegalArgumentException if the order is out of range
+	 */
+	public TextProbability(int order) {
+		this.order = order;
+		counter = new BigramCounter(order);
+		model = null;
+		offHeap = false;
 	}
 
 	/**
-	 * Builds the Markov Chain using a Scanner to read the file and StringBuilder to
-	 * convert all letters to lowercase and its split function to reject all
-	 * punctuation except underscores and apostrophes.
+	 * Builds the Markov Chain in a single streaming pass over the file. The bytes
+	 * are lowercased and split into words as they are read, rejecting all
+	 * punctuation except underscores and apostrophes, and each adjacent pair of
+	 * words goes straight into the chain. Memory use depends on the vocabulary,
+	 * not on the size of the file.
 	 * 
 	 * @param file - text file used to build the Markov Chain
 	 * @throws FileNotFoundException if the file path is incorrect (should never
 	 *                               happen with correct command-line arguments)
+	 * @throws IOException           if the file cannot be read
+	 */
+	public void buildMarkovChain(File file) throws IOException {
+		try (FileInputStream input = new FileInputStream(file)) {
+			FileChannel channel = input.getChannel();
+			addCounts(BigramCounter.count(channel, 0, channel.size(), order), false);
+		}
+	}
+
+	/**
+	 * Builds the Markov Chain like buildMarkovChain, but keeps the counts of word
+	 * pairs within a memory budget, for text with more distinct pairs than fit.
+	 * Pairs are tallied approximately in a count-min sketch of fixed size and
+	 * only counted exactly once they have been seen minCount times, and whenever
+	 * the exact counts fill their share of the budget, the rarest are dropped.
+	 * The chain then holds only the more frequent pairs. A word whose subsequent
+	 * words were all dropped is treated like a word that was never followed by
+	 * anything, so generating from it gives an empty string or the seed again.
+	 * 
+	 * @param file         - text file used to build the Markov Chain
+	 * @param minCount     - fewest times a pair has to be seen to be kept
+	 * @param memoryBudget - bytes the pair counts may take while the file is read,
+	 *                     not counting the vocabulary
+	 * @return the fraction of the probability mass that was pruned, which is the
+	 *         share of the pairs in the file that were dropped
+	 * @throws FileNotFoundException    if the file path is incorrect
+	 * @throws IOException              if the file cannot be read
+	 * @throws IllegalArgumentException if minCount is less than one or the budget
+	 *                                  is too small
+	 */
+	public double buildMarkovChain(File file, int minCount, long memoryBudget) throws IOException {
+		try (FileInputStream input = new FileInputStream(file)) {
+			BigramCounter counted = BigramCounter.count(input.getChannel(), order, minCount, memoryBudget);
+			double pruned = counted.getPrunedMass();
+			addCounts(counted, false);
+			return pruned;
+		}
+	}
+
+	/**
+	 * Builds the Markov Chain like buildMarkovChain, but reads the file on all
+	 * available cores. The file is split into byte ranges that begin and end
+	 * between words, each range is counted on the common fork/join pool, and the
+	 * partial counts are merged along with the contexts spanning each split.
+	 * The resulting chain is identical to the one built sequentially.
+	 * 
+	 * @param file - text file used to build the Markov Chain
+	 * @throws FileNotFoundException if the file path is incorrect
+	 * @throws IOException           if the file cannot be read
 	 */
-	@SuppressWarnings("unused")
-	public void buildMarkovChain(File file) throws FileNotFoundException {
-		Scanner scanner = new Scanner(file);
-		StringBuilder content = new StringBuilder();
+	public void buildMarkovChainInParallel(File file) throws IOException {
+		try (FileInputStream input = new FileInputStream(file)) {
+			BigramCounter counted = BigramCounter.countInParallel(input.getChannel(), ForkJoinPool.commonPool(), order);
+			addCounts(counted, false);
+		}
+	}
 
-		while (scanner.hasNext()) {
-			content.append(scanner.next().toLowerCase()).append(" ");
+	/**
+	 * Adds the counts of text read after everything counted so far. If nothing
+	 * has been read yet, the counts are taken over as they are instead of being
+	 * copied into the empty table.
+	 * 
+	 * @param counted - counts of the new text, which should not be used afterward
+	 * @param join    - true if the new text runs on from the text read before
+	 */
+	private void addCounts(BigramCounter counted, boolean join) {
+		if (counter.isUnused()) {
+			counter = counted;
+		} else {
+			counter.addAll(counted, join);
 		}
-		scanner.close();
+	}
 
-		String[] words = content.toString().split("[^a-z0-9'_]+"); // Gets rid of all punctuation except underscores and
-																	// apostrophes
-		for (String word : words) {
-			if (!word.isEmpty()) {
-				validWords.add(word);
+	/**
+	 * Builds the Markov Chain from many files at once, such as the shards of a
+	 * corpus. The files are read concurrently on a pool of the given number of
+	 * threads, large files are also split into ranges, and the counts are merged
+	 * in the order of the list, so the result is the same for any number of
+	 * threads.
+	 * 
+	 * @param files     - text files used to build the Markov Chain, in order
+	 * @param spanFiles - true if the last words of each file should be counted
+	 *                  as coming before the first words of the next, as if the
+	 *                  files were one text; false if each file stands alone
+	 * @param threads   - largest number of files read at once
+	 * @throws FileNotFoundException if a file does not exist
+	 * @throws IOException           if a file cannot be read
+	 */
+	public void buildMarkovChain(List<File> files, boolean spanFiles, int threads) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			addCounts(BigramCounter.countFiles(files, spanFiles, pool, order), false);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Lists the files of a corpus. The path may name a single file, a directory,
+	 * whose regular files are all listed however deeply nested, or a glob such
+	 * as "shards/*.txt" or "data/**.txt".
+	 * 
+	 * @param path - a file, directory or glob
+	 * @return the files, sorted by path
+	 * @throws IOException if a directory cannot be read
+	 */
+	public static List<File> findFiles(String path) throws IOException {
+		int glob = 0;
+		while (glob < path.length() && "*?[{".indexOf(path.charAt(glob)) < 0) {
+			glob++;
+		}
+
+		Path base;
+		PathMatcher matcher;
+		if (glob == path.length()) {
+			base = Path.of(path);
+			if (!Files.isDirectory(base)) {
+				return List.of(base.toFile());
 			}
+			matcher = file -> true;
+		} else {
+			int separator = Math.max(path.lastIndexOf('/', glob), path.lastIndexOf(File.separatorChar, glob));
+			base = Path.of(separator < 0 ? "" : path.substring(0, separator + 1));
+			matcher = FileSystems.getDefault().getPathMatcher("glob:" + path);
 		}
 
-		for (int i = 0; i < validWords.size() - 1; i++) {
-			makeMap(validWords.get(i), validWords.get(i + 1));
+		try (Stream<Path> walk = Files.walk(base)) {
+			return walk.filter(file -> Files.isRegularFile(file) && matcher.matches(file)).sorted()
+					.map(Path::toFile).toList();
 		}
+	}
 
+	/**
+	 * Adds the text of a file to the Markov Chain as a continuation of the text
+	 * read before it, so the last words read before are counted as coming right
+	 * before the first words of this file. Only the new text is read, and the
+	 * file is counted on all available cores like buildMarkovChainInParallel.
+	 * A model loaded from a snapshot does not remember the words it ended with,
+	 * so the first text appended to it is not joined on.
+	 * 
+	 * @param file - text file to add to the Markov Chain
+	 * @throws FileNotFoundException if the file path is incorrect
+	 * @throws IOException           if the file cannot be read
+	 */
+	public void append(File file) throws IOException {
+		try (FileInputStream input = new FileInputStream(file)) {
+			BigramCounter counted = BigramCounter.countInParallel(input.getChannel(), ForkJoinPool.commonPool(), order);
+			addCounts(counted, true);
+		}
 	}
 
 	/**
-	 * Updates the Markov Chain by adding or incrementing the occurrence of a word
-	 * being followed by another word. If the current word is not in the Markov
-	 * Chain yet, a new entry is created. Then, it checks if the next word has
-	 * already been added. If it hasn't, it gets added as a subsequent word. If it
-	 * has, the frequency count (value) gets incremented.
+	 * Adds text read from a stream to the Markov Chain as a continuation of the
+	 * text read before it, like append(File). The stream is read to its end but
+	 * not closed.
 	 * 
-	 * @param current - the current word being looked at in the input text file
-	 * @param next    - the word that follows the current word in the input text
-	 *                file
+	 * @param input - stream of text to add to the Markov Chain
+	 * @throws IOException if the stream cannot be read
+	 */
+	public void append(InputStream input) throws IOException {
+		WordTokenizer.tokenize(Channels.newChannel(input), counter::add);
+	}
+
+	/**
+	 * Compiles every word pair counted so far into the compact model used for
+	 * generating words, then releases the tables they were counted in. Pairs read
+	 * after this are added to the compiled counts the next time it is called.
+	 * Only the rows they touch are merged and ranked again, but every row is
+	 * copied into the new model, so this takes time linear in the size of the
+	 * whole model. The last words read are kept, so appended text still joins
+	 * on. This happens automatically before words are generated.
 	 */
-	private void makeMap(String current, String next) {
-		if (!markovChain.containsKey(current)) {
-			markovChain.put(current, new HashMap<>());
+	public void compile() {
+		if (model == null || !counter.isEmpty()) {
+			model = place(MarkovModel.compile(model, counter));
+			counter = counter.continuation();
 		}
+	}
 
-		Map<String, Integer> nextWords = markovChain.get(current);
+	/**
+	 * Saves the compiled model to a binary snapshot file, which can be loaded
+	 * much faster than the text can be read again. The model is compiled first if
+	 * needed, and saved frozen if it has been frozen. A model may be saved over
+	 * the snapshot it was loaded from.
+	 * 
+	 * @param file - where to save the snapshot
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(File file) throws IOException {
+		compile();
+		ModelSnapshot.save(model, file);
+	}
 
-		if (nextWords.containsKey(next)) {
-			nextWords.put(next, nextWords.get(next) + 1);
-		} else {
-			nextWords.put(next, 1);
+	/**
+	 * Loads a model saved with save. The snapshot is memory-mapped rather than
+	 * read, so this returns almost immediately and the model is paged in as it is
+	 * used. The model keeps the order it was saved with, and more text may still
+	 * be added to it.
+	 * 
+	 * @param file - the snapshot to load
+	 * @return the saved model
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	public static TextProbability load(File file) throws IOException {
+		MarkovModel model = ModelSnapshot.load(file);
+		TextProbability markovChain = new TextProbability(model.getOrder());
+		markovChain.model = model;
+		return markovChain;
+	}
+
+	/**
+	 * Returns true if the file is a snapshot saved with save, rather than text.
+	 * 
+	 * @param file - the file to check
+	 * @return true if the file can be loaded with load
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean isSnapshot(File file) throws IOException {
+		return ModelSnapshot.isSnapshot(file);
+	}
+
+	/**
+	 * Compiles the model and sorts the subsequent words of every word once by
+	 * rank, using the same ordering as generateProbable. Afterward the k most
+	 * probable words are found in O(k) time, and the most probable next word in
+	 * constant time. The model stays frozen: text read later is ranked as it is
+	 * compiled.
+	 */
+	public void freeze() {
+		compile();
+		model = place(model.freeze());
+	}
+
+	/**
+	 * Keeps the compiled model outside the Java heap from now on, in direct
+	 * memory, so that a large long-lived model does not lengthen garbage
+	 * collection pauses: the collector never scans or copies it, and the heap
+	 * only holds the model's small wrapper objects. A model loaded from a
+	 * snapshot is already off the heap, since its tables are mapped from the
+	 * file. Direct memory is limited by the -XX:MaxDirectMemorySize option of the
+	 * JVM.
+	 *
+	 * This does not lower the peak heap use. Counting text uses the heap, and
+	 * every compile and freeze still builds the new tables on the heap and only
+	 * then copies them out, so the heap must briefly hold the whole model. Each
+	 * table is copied into a single direct buffer, which cannot reach 2 GB, so a
+	 * model can have at most about 500 million pairs, since the pair tables take
+	 * four bytes per pair.
+	 */
+	public void storeOffHeap() {
+		offHeap = true;
+		if (model != null) {
+			model = place(model);
 		}
 	}
 
+	/**
+	 * Moves a model off the heap if storeOffHeap has been called.
+	 *
+	 * @param compiled - a model
+	 * @return the model, off the heap if it should be
+	 */
+	private MarkovModel place(MarkovModel compiled) {
+		return offHeap ? compiled.offHeap() : compiled;
+	}
+
+	/**
+	 * Freezes the model and returns a view of it that can only be read, for
+	 * generating words from many threads at once. This TextProbability itself is
+	 * not thread-safe, but the view is: it is never changed, not even by text
+	 * added here later, and it takes the source of randomness as an argument.
+	 *
+	 * @return a thread-safe view of the frozen model as it is now
+	 */
+	public FrozenModel frozen() {
+		freeze();
+		return new FrozenModel(model);
+	}
+
+	/**
+	 * Answers many (seed, k, mode) requests at once, spread over all available
+	 * cores, and hands each result to the sink as soon as it is ready instead of
+	 * collecting them. Random requests each draw from their own stream derived
+	 * from the master seed and their position in the list, so the results are
+	 * the same for any number of threads. The model is frozen first.
+	 *
+	 * @param requests   - the requests
+	 * @param masterSeed - seed that every random stream is derived from
+	 * @param sink       - receives each result along with the position of its
+	 *                   request, from any thread and in any order
+	 */
+	public void generateAll(List<GenerationRequest> requests, long masterSeed, GenerationRequest.Sink sink) {
+		frozen().generateAll(requests, masterSeed, sink);
+	}
+
+	/**
+	 * Answers many requests at once like generateAll, on the given number of
+	 * threads.
+	 *
+	 * @param requests   - the requests
+	 * @param masterSeed - seed that every random stream is derived from
+	 * @param threads    - number of threads to use
+	 * @param sink       - receives each result along with the position of its
+	 *                   request, from any thread and in any order
+	 */
+	public void generateAll(List<GenerationRequest> requests, long masterSeed, int threads,
+			GenerationRequest.Sink sink) {
+		frozen().generateAll(requests, masterSeed, threads, sink);
+	}
+
 	/**
 	 * Generates the k most probable words that could come after the seed word. The
 	 * words are outputted in descending order from most probable to least, with
@@ -102,26 +399,8 @@ public class TextProbability {
 	 *         space.
 	 */
 	public String generateProbable(String seed, int kAmount) {
-		if (!markovChain.containsKey(seed) || markovChain.get(seed).isEmpty()) {
-			return "";
-		}
-
-		Map<String, Integer> innerChain = markovChain.get(seed);
-		PriorityQueue<Map.Entry<String, Integer>> pq = new PriorityQueue<>(new WordFrequencyComparator());
-
-		pq.addAll(innerChain.entrySet());
-
-		StringBuilder result = new StringBuilder();
-		int count = Math.min(kAmount, pq.size());
-
-		for (int i = 0; i < count; i++) {
-			if (i > 0) {
-				result.append(" ");
-			}
-			result.append(pq.poll().getKey());
-		}
-
-		return result.toString();
+		compile();
+		return model.generateProbable(seed, kAmount);
 	}
 
 	/**
@@ -136,47 +415,8 @@ public class TextProbability {
 	 * @return a string of a deterministic sequence of words seperated by a space.
 	 */
 	public String generateDeterminstic(String seed, int kAmount) {
-		StringBuilder result = new StringBuilder();
-		String currentWord = seed;
-
-		if (kAmount > 0) {
-			result.append(seed);
-			kAmount--;
-		}
-
-		while (kAmount > 0) {
-			if (markovChain.containsKey(currentWord)) {
-				Map<String, Integer> nextWords = markovChain.get(currentWord);
-
-				String bestWord = null;
-				int bestFreq = -1;
-
-				for (Map.Entry<String, Integer> entry : nextWords.entrySet()) {
-					String word = entry.getKey();
-					int freq = entry.getValue();
-
-					if (freq > bestFreq || (freq == bestFreq && (bestWord == null || word.compareTo(bestWord) < 0))) {
-						bestWord = word;
-						bestFreq = freq;
-					}
-				}
-
-				if (bestWord == null) {
-					bestWord = seed;
-				}
-
-				result.append(" ").append(bestWord);
-				currentWord = bestWord;
-				kAmount--;
-			} else {
-
-				result.append(" ").append(seed);
-				currentWord = seed;
-				kAmount--;
-			}
-		}
-
-		return result.toString();
+		compile();
+		return model.generateDeterminstic(seed, kAmount);
 	}
 
 	/**
@@ -191,68 +431,42 @@ public class TextProbability {
 	 *         seed word, taking probability into account.
 	 */
 	public String generateRandom(String seed, int kAmount) {
-		StringBuilder result = new StringBuilder();
-		String currentWord = seed;
-		Random random = new Random();
-
-		if (kAmount > 0) {
-			result.append(seed);
-			kAmount--;
-		}
-
-		while (kAmount > 0) {
-			if (markovChain.containsKey(currentWord) && !markovChain.get(currentWord).isEmpty()) {
-				Map<String, Integer> nextWords = markovChain.get(currentWord);
-				int totalOccurrences = 0;
-				for (Integer count : nextWords.values()) {
-					totalOccurrences += count;
-				}
-
-				int randomIndex = random.nextInt(totalOccurrences);
-				int cumulativeCount = 0;
-				for (Map.Entry<String, Integer> entry : nextWords.entrySet()) {
-					cumulativeCount += entry.getValue();
-					if (cumulativeCount > randomIndex) {
-						result.append(" ").append(entry.getKey());
-						currentWord = entry.getKey();
-						break;
-					}
-				}
-			} else {
-				result.append(" ").append(seed);
-				currentWord = seed;
-			}
-			kAmount--;
-		}
-
-		return result.toString();
+		compile();
+		return model.generateRandom(seed, kAmount);
 	}
 
 	/**
-	 * A comparator for comparing entries in a word-frequency map in descending
-	 * order (higher frequencies come first). Ties are broken by using the
-	 * lexicographical ordering of the words (ascending).
+	 * Writes the same words as generateDeterminstic to a stream while they are
+	 * generated, instead of returning them all at once. Memory use stays the same
+	 * for any k, and the first words are written right away. The stream is
+	 * flushed but not closed.
+	 * 
+	 * @param seed    - the starting word used to look up the most probable word
+	 *                that comes after it
+	 * @param kAmount - number of words to be generated
+	 * @param out     - where to write the words, separated by a space
+	 * @throws IOException if the stream cannot be written
 	 */
-	private static class WordFrequencyComparator implements Comparator<Map.Entry<String, Integer>> {
+	public void generateDeterminstic(String seed, long kAmount, OutputStream out) throws IOException {
+		compile();
+		model.generateDeterminstic(seed, kAmount, out);
+	}
 
-		/**
-		 * Compares two entries based on their frequency values. Higher frequency
-		 * entries are considered "less than" lower ones for priority queue ordering
-		 * (i.e., they come first). If frequencies are equal, entries are compared
-		 * lexicographically by key.
-		 * 
-		 * @param e1 - the first word-frequency map entry
-		 * @param e2 - the second word-frequency map entry
-		 * @return a negative one if e1 has higher priority, one if e2 does, or zero if
-		 *         both entries are considered equal.
-		 */
-		@Override
-		public int compare(Map.Entry<String, Integer> e1, Map.Entry<String, Integer> e2) {
-			int freqCompare = Integer.compare(e2.getValue(), e1.getValue()); // Descending by value
-			if (freqCompare != 0)
-				return freqCompare;
-			return e1.getKey().compareTo(e2.getKey()); // Ascending by word
-		}
+	/**
+	 * Writes random words picked like generateRandom to a stream while they are
+	 * generated, instead of returning them all at once. Memory use stays the same
+	 * for any k, and the first words are written right away. The stream is
+	 * flushed but not closed.
+	 * 
+	 * @param seed    - the starting word used to look up the the words that come
+	 *                after it
+	 * @param kAmount - number of words to be generated
+	 * @param out     - where to write the words, separated by a space
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void generateRandom(String seed, long kAmount, OutputStream out) throws IOException {
+		compile();
+		model.generateRandom(seed, kAmount, out);
 	}
 
 }
\ No newline at end of file
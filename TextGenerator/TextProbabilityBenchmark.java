@@ -0,0 +1,205 @@
+package comprehensive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks of how fast TextProbability builds models and generates
+ * words, so a change can be checked for speedups and slowdowns. They cover
+ * building from small, medium and large corpora, and generateProbable,
+ * generateDeterminstic and generateRandom from seeds with few and many
+ * subsequent words, for several values of k, on compiled and frozen models.
+ *
+ * The corpora are written to a temporary directory by CorpusGenerator from a
+ * fixed seed, so the suite runs offline and results can be compared between
+ * runs. The corpus size, fanout of the seed, k and whether the model is frozen
+ * are all parameters, and each combination is run in a fresh JVM.
+ *
+ * To run it, compile the package with jmh-core and jmh-generator-annprocess on
+ * the class path, so the annotation processor generates the harness, then run
+ * the JMH main class with the gc profiler for the allocation rate, bytes
+ * allocated per operation and garbage collections:
+ *
+ * <pre>
+ * javac -cp jmh-core.jar:jmh-generator-annprocess.jar -d out *.java
+ * java -cp out:jmh-core.jar:jopt-simple.jar:commons-math3.jar \
+ *     org.openjdk.jmh.Main TextProbabilityBenchmark -prof gc
+ * </pre>
+ *
+ * A regular expression after the class name picks benchmarks, such as
+ * "TextProbabilityBenchmark.probable", and -p narrows a parameter, such as
+ * "-p tokens=1000000 -p k=10".
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextProbabilityBenchmark {
+
+	private static final long SEED = 20261017L;
+	private static final int VOCABULARY = 20_000;
+
+	/**
+	 * A corpus written once for every run of a benchmark.
+	 */
+	@State(Scope.Benchmark)
+	public static class Corpus {
+
+		@Param({ "100000", "1000000", "10000000" })
+		public int tokens;
+
+		File directory;
+		File file;
+
+		/**
+		 * Writes the corpus of words w0, w1, ... with Zipf distributed
+		 * frequencies, in which half of the words are one of four fixed partners
+		 * of the word before.
+		 *
+		 * @throws IOException if the corpus cannot be written
+		 */
+		@Setup(Level.Trial)
+		public void write() throws IOException {
+			directory = Files.createTempDirectory("markov-benchmark").toFile();
+			file = new CorpusGenerator(VOCABULARY, 1, SEED + tokens, 0.5, 4).write(new File(directory, "corpus.txt"),
+					tokens);
+		}
+
+		/**
+		 * Deletes the corpus.
+		 */
+		@TearDown(Level.Trial)
+		public void delete() {
+			file.delete();
+			directory.delete();
+		}
+	}
+
+	/**
+	 * A model built from the corpus, and a seed to generate from.
+	 */
+	@State(Scope.Benchmark)
+	public static class Model {
+
+		@Param({ "low", "high" })
+		public String fanout;
+
+		@Param({ "10", "1000", "100000" })
+		public int k;
+
+		@Param({ "false", "true" })
+		public boolean frozen;
+
+		TextProbability markovChain;
+		String seed;
+
+		/**
+		 * Builds and compiles the model, freezing it if asked, and picks the seed.
+		 *
+		 * @param corpus - the corpus to build from
+		 * @throws IOException if the corpus cannot be read
+		 */
+		@Setup(Level.Trial)
+		public void build(Corpus corpus) throws IOException {
+			markovChain = new TextProbability();
+			markovChain.buildMarkovChain(corpus.file);
+			markovChain.compile();
+			if (frozen) {
+				markovChain.freeze();
+			}
+			seed = fanout.equals("low") ? lowFanoutSeed(markovChain) : "w0";
+		}
+	}
+
+	/**
+	 * Builds and compiles a model of the corpus.
+	 *
+	 * @param corpus    - the corpus to build from
+	 * @param blackhole - takes the model, so the work cannot be dropped
+	 * @throws IOException if the corpus cannot be read
+	 */
+	@Benchmark
+	public void build(Corpus corpus, Blackhole blackhole) throws IOException {
+		TextProbability markovChain = new TextProbability();
+		markovChain.buildMarkovChain(corpus.file);
+		markovChain.compile();
+		blackhole.consume(markovChain);
+	}
+
+	/**
+	 * Generates the k most probable subsequent words of the seed.
+	 *
+	 * @param model     - the model and seed
+	 * @param blackhole - takes the words, so the work cannot be dropped
+	 */
+	@Benchmark
+	public void probable(Model model, Blackhole blackhole) {
+		blackhole.consume(model.markovChain.generateProbable(model.seed, model.k));
+	}
+
+	/**
+	 * Generates k words from the seed, always taking the most probable next word.
+	 *
+	 * @param model     - the model and seed
+	 * @param blackhole - takes the words, so the work cannot be dropped
+	 */
+	@Benchmark
+	public void deterministic(Model model, Blackhole blackhole) {
+		blackhole.consume(model.markovChain.generateDeterminstic(model.seed, model.k));
+	}
+
+	/**
+	 * Generates k words from the seed, drawing each next word at random.
+	 *
+	 * @param model     - the model and seed
+	 * @param blackhole - takes the words, so the work cannot be dropped
+	 */
+	@Benchmark
+	public void random(Model model, Blackhole blackhole) {
+		blackhole.consume(model.markovChain.generateRandom(model.seed, model.k));
+	}
+
+	/**
+	 * Finds a seed with few subsequent words, but more than one. The seeds are
+	 * the words of the corpus named w0, w1, and so on, with w0 the most frequent
+	 * and so the one with the most subsequent words.
+	 *
+	 * @param markovChain - the model to look in
+	 * @return a low fanout seed
+	 */
+	private static String lowFanoutSeed(TextProbability markovChain) {
+		String low = "w0";
+		int lowFanout = Integer.MAX_VALUE;
+		for (int rank = VOCABULARY / 2; rank < VOCABULARY; rank += VOCABULARY / 64) {
+			String word = "w" + rank;
+			String successors = markovChain.generateProbable(word, Integer.MAX_VALUE);
+			int fanout = successors.isEmpty() ? 0 : successors.split(" ").length;
+			if (fanout > 1 && fanout < lowFanout) {
+				low = word;
+				lowFanout = fanout;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,203 @@
+package comprehensive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for TextProbability, checking the words generated from the compiled
+ * model of a short text, and that a model saved to a snapshot and loaded again
+ * generates the same words.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+public class TextProbabilityTest {
+
+	private static final String TEXT = "The cat sat on the mat. The cat ran, the dog sat!";
+
+	@Test
+	public void generateProbableRanksByCountThenWord() throws IOException {
+		TextProbability markovChain = build(TEXT);
+		assertEquals("cat dog mat", markovChain.generateProbable("the", 5));
+		assertEquals("cat dog", markovChain.generateProbable("the", 2));
+		assertEquals("ran sat", markovChain.generateProbable("cat", 2));
+	}
+
+	@Test
+	public void generateProbableOfUnknownSeed() throws IOException {
+		assertEquals("", build(TEXT).generateProbable("zebra", 3));
+	}
+
+	@Test
+	public void generateDeterministicBreaksTiesByWord() throws IOException {
+		TextProbability markovChain = build(TEXT);
+		assertEquals("the cat ran the cat ran", markovChain.generateDeterminstic("the", 6));
+		assertEquals("dog sat on the", markovChain.generateDeterminstic("dog", 4));
+	}
+
+	@Test
+	public void generateRandomOnlyFollowsCountedPairs() throws IOException {
+		Set<String> pairs = Set.of("the cat", "the mat", "the dog", "cat sat", "cat ran", "sat on", "on the",
+				"mat the", "ran the", "dog sat");
+		TextProbability markovChain = build(TEXT);
+		String[] words = markovChain.generateRandom("the", 200).split(" ");
+		assertEquals("the", words[0]);
+		for (int i = 1; i < words.length; i++) {
+			assertTrue(pairs.contains(words[i - 1] + " " + words[i]), words[i - 1] + " " + words[i]);
+		}
+	}
+
+	@Test
+	public void compileMergesTextReadAfterward() throws IOException {
+		String first = "a b a c a b";
+		String second = "b c c a b b";
+		TextProbability whole = build(first);
+		build(whole, second);
+
+		TextProbability compiledBetween = build(first);
+		compiledBetween.compile();
+		assertEquals("b c", compiledBetween.generateProbable("a", 3));
+		build(compiledBetween, second);
+
+		for (String seed : new String[] { "a", "b", "c" }) {
+			assertEquals(whole.generateProbable(seed, 3), compiledBetween.generateProbable(seed, 3), seed);
+			assertEquals(whole.generateDeterminstic(seed, 8), compiledBetween.generateDeterminstic(seed, 8), seed);
+		}
+	}
+
+	@Test
+	public void snapshotRoundTrip() throws IOException {
+		for (boolean frozen : new boolean[] { false, true }) {
+			TextProbability markovChain = build(TEXT);
+			if (frozen) {
+				markovChain.freeze();
+			}
+			TextProbability loaded = saveAndLoad(markovChain);
+			for (String seed : new String[] { "the", "cat", "sat", "on", "mat", "ran", "dog", "zebra" }) {
+				assertEquals(markovChain.generateProbable(seed, 5), loaded.generateProbable(seed, 5), seed);
+				assertEquals(markovChain.generateDeterminstic(seed, 9), loaded.generateDeterminstic(seed, 9), seed);
+			}
+		}
+	}
+
+	@Test
+	public void snapshotTakesMoreText() throws IOException {
+		TextProbability loaded = saveAndLoad(build(TEXT));
+		build(loaded, "the dog ran. the dog ran.");
+		TextProbability whole = build(TEXT);
+		build(whole, "the dog ran. the dog ran.");
+		assertEquals("dog cat mat", loaded.generateProbable("the", 5));
+		assertEquals(whole.generateProbable("dog", 5), loaded.generateProbable("dog", 5));
+	}
+
+	@Test
+	public void saveOverOwnSnapshot() throws IOException {
+		File file = Files.createTempFile("model", ".snap").toFile();
+		try {
+			TextProbability markovChain = build(TEXT);
+			markovChain.save(file);
+			// The loaded model reads its tables from the file it is saved over
+			TextProbability loaded = TextProbability.load(file);
+			loaded.save(file);
+			TextProbability reloaded = TextProbability.load(file);
+			for (String seed : new String[] { "the", "cat", "dog", "ran" }) {
+				assertEquals(markovChain.generateProbable(seed, 5), loaded.generateProbable(seed, 5), seed);
+				assertEquals(markovChain.generateProbable(seed, 5), reloaded.generateProbable(seed, 5), seed);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void loadRejectsBadHeaderCounts() throws IOException {
+		File file = Files.createTempFile("model", ".snap").toFile();
+		try {
+			// Word count, pair count, then a pair count that disagrees with the offsets
+			for (int[] change : new int[][] { { 16, -1 }, { 28, Integer.MAX_VALUE }, { 28, 1 } }) {
+				build(TEXT).save(file);
+				try (RandomAccessFile snapshot = new RandomAccessFile(file, "rw")) {
+					snapshot.seek(change[0]);
+					snapshot.writeInt(Integer.reverseBytes(change[1]));
+				}
+				assertThrows(IOException.class, () -> TextProbability.load(file));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void isSnapshotOnlyForSnapshots() throws IOException {
+		File text = Files.createTempFile("text", ".txt").toFile();
+		File snapshot = Files.createTempFile("model", ".snap").toFile();
+		try {
+			Files.writeString(text.toPath(), TEXT, StandardCharsets.UTF_8);
+			build(TEXT).save(snapshot);
+			assertTrue(TextProbability.isSnapshot(snapshot));
+			assertFalse(TextProbability.isSnapshot(text));
+			assertThrows(IOException.class, () -> TextProbability.load(text));
+		} finally {
+			text.delete();
+			snapshot.delete();
+		}
+	}
+
+	/**
+	 * Builds a Markov Chain from text.
+	 *
+	 * @param text - the text
+	 * @return the Markov Chain
+	 * @throws IOException if the temporary file cannot be used
+	 */
+	static TextProbability build(String text) throws IOException {
+		TextProbability markovChain = new TextProbability();
+		build(markovChain, text);
+		return markovChain;
+	}
+
+	/**
+	 * Saves a Markov Chain to a temporary snapshot and loads it again.
+	 *
+	 * @param markovChain - the Markov Chain to save
+	 * @return the loaded Markov Chain
+	 * @throws IOException if the temporary file cannot be used
+	 */
+	static TextProbability saveAndLoad(TextProbability markovChain) throws IOException {
+		File file = Files.createTempFile("model", ".snap").toFile();
+		try {
+			markovChain.save(file);
+			return TextProbability.load(file);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Adds text to a Markov Chain by way of a temporary file.
+	 *
+	 * @param markovChain - the Markov Chain
+	 * @param text        - the text
+	 * @throws IOException if the temporary file cannot be used
+	 */
+	static void build(TextProbability markovChain, String text) throws IOException {
+		File file = Files.createTempFile("text", ".txt").toFile();
+		try {
+			Files.writeString(file.toPath(), text, StandardCharsets.UTF_8);
+			markovChain.buildMarkovChain(file);
+		} finally {
+			file.delete();
+		}
+	}
+}
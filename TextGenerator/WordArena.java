@@ -0,0 +1,198 @@
+package comprehensive;
+
+import java.util.Arrays;
+
+/**
+ * A growing vocabulary that stores every word back to back in one byte array,
+ * one byte per character, with the start of each word in a table of offsets.
+ * Words are numbered in the order they are added and found through an
+ * open-addressing hash index over their bytes, so a word can be looked up
+ * straight from a slice of a buffer and no String is ever created for it.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+class WordArena {
+
+	private byte[] bytes;
+	private int[] starts;
+	private int[] hashes;
+	private int size;
+
+	// Id plus one of the word in each slot, or zero for an empty slot
+	private int[] index;
+
+	/**
+	 * Creates an empty vocabulary.
+	 */
+	WordArena() {
+		bytes = new byte[256];
+		starts = new int[33];
+		hashes = new int[32];
+		index = new int[64];
+		size = 0;
+	}
+
+	/**
+	 * Finds the id of a word, adding the word if it is new.
+	 *
+	 * @param word   - array holding the word
+	 * @param offset - position of the word in the array
+	 * @param length - number of bytes in the word
+	 * @return the id of the word
+	 */
+	int intern(byte[] word, int offset, int length) {
+		int hash = hash(word, offset, length);
+		int mask = index.length - 1;
+		int slot = hash & mask;
+		for (int id = index[slot] - 1; id >= 0; id = index[slot] - 1) {
+			if (hashes[id] == hash && equals(id, word, offset, length)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (size == hashes.length) {
+			starts = Arrays.copyOf(starts, size * 2 + 1);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		int start = starts[size];
+		if (start + length > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + length));
+		}
+		System.arraycopy(word, offset, bytes, start, length);
+		starts[size + 1] = start + length;
+		hashes[size] = hash;
+		index[slot] = size + 1;
+		size++;
+		if (size * 2 > index.length) {
+			grow();
+		}
+		return size - 1;
+	}
+
+	/**
+	 * Finds the id of a word of another vocabulary, adding the word if it is new.
+	 *
+	 * @param other - the vocabulary holding the word
+	 * @param id    - id of the word in that vocabulary
+	 * @return the id of the word in this vocabulary
+	 */
+	int intern(WordArena other, int id) {
+		return intern(other.bytes, other.starts[id], other.length(id));
+	}
+
+	/**
+	 * Returns true if the word with the given id has the given bytes.
+	 *
+	 * @param id     - id of the word
+	 * @param word   - array holding the other word
+	 * @param offset - position of the other word in the array
+	 * @param length - number of bytes in the other word
+	 * @return true if the words are the same
+	 */
+	private boolean equals(int id, byte[] word, int offset, int length) {
+		return Arrays.equals(bytes, starts[id], starts[id + 1], word, offset, offset + length);
+	}
+
+	/**
+	 * Doubles the hash index and places every word again.
+	 */
+	private void grow() {
+		index = new int[index.length * 2];
+		int mask = index.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = hashes[id] & mask;
+			while (index[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			index[slot] = id + 1;
+		}
+	}
+
+	/**
+	 * Hashes the bytes of a word, spreading the result over every bit so that
+	 * the low bits can be used as a slot.
+	 *
+	 * @param word   - array holding the word
+	 * @param offset - position of the word in the array
+	 * @param length - number of bytes in the word
+	 * @return the hash
+	 */
+	private static int hash(byte[] word, int offset, int length) {
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++) {
+			hash = hash * 31 + word[i];
+		}
+		return (int) ((hash * 0x9E3779B97F4A7C15L) >>> 32);
+	}
+
+	/**
+	 * Returns the number of words.
+	 *
+	 * @return the number of words
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the length of the word with the given id.
+	 *
+	 * @param id - id of the word
+	 * @return the number of bytes in the word
+	 */
+	int length(int id) {
+		return starts[id + 1] - starts[id];
+	}
+
+	/**
+	 * Copies the word with the given id into an array.
+	 *
+	 * @param id          - id of the word
+	 * @param destination - where to copy the bytes
+	 * @param offset      - position in destination of the first byte
+	 */
+	void copy(int id, byte[] destination, int offset) {
+		System.arraycopy(bytes, starts[id], destination, offset, length(id));
+	}
+
+	/**
+	 * Finds the word with the given id in a WordTable.
+	 *
+	 * @param id    - id of the word in this vocabulary
+	 * @param table - the table to look in
+	 * @return the id of the word in the table, or -1 if it is not there
+	 */
+	int idIn(WordTable table, int id) {
+		return table.idOf(bytes, starts[id], length(id));
+	}
+
+	/**
+	 * Compares two words of this vocabulary, in the same order as
+	 * String.compareTo.
+	 *
+	 * @param first  - id of one word
+	 * @param second - id of the other word
+	 * @return a negative number, zero, or a positive number as the first word
+	 *         comes before, equals, or comes after the second
+	 */
+	int compare(int first, int second) {
+		return Arrays.compareUnsigned(bytes, starts[first], starts[first + 1], bytes, starts[second],
+				starts[second + 1]);
+	}
+
+	/**
+	 * Compares the word with the given id to a word of a WordTable, in the same
+	 * order as String.compareTo.
+	 *
+	 * @param id    - id of the word in this vocabulary
+	 * @param table - the table holding the other word
+	 * @param other - id of the other word in the table
+	 * @return a negative number, zero, or a positive number as the word comes
+	 *         before, equals, or comes after the word of the table
+	 */
+	int compare(int id, WordTable table, int other) {
+		return -table.compare(other, bytes, starts[id], length(id));
+	}
+}
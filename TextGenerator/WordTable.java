@@ -0,0 +1,234 @@
+package comprehensive;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A lexicographically sorted table of words, stored back to back as ASCII
+ * bytes with the start of each word kept in a separate table. The index of a
+ * word in the table is its id. Since the table is sorted, a word is found with
+ * a binary search and no hash index has to be built or loaded, so a table read
+ * straight out of a memory-mapped file is usable at once.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+class WordTable {
+
+	private final ByteBuffer bytes;
+	private final IntBuffer starts;
+
+	/**
+	 * Creates a table over already laid out words.
+	 *
+	 * @param bytes  - every word, back to back, in sorted order
+	 * @param starts - position in bytes of each word, plus the end of the last
+	 */
+	WordTable(ByteBuffer bytes, IntBuffer starts) {
+		this.bytes = bytes;
+		this.starts = starts;
+	}
+
+	/**
+	 * Lays out a table of words.
+	 *
+	 * @param words - ASCII words, sorted lexicographically
+	 * @return a table holding the words in the same order
+	 */
+	static WordTable of(String[] words) {
+		int[] starts = new int[words.length + 1];
+		for (int id = 0; id < words.length; id++) {
+			starts[id + 1] = starts[id] + words[id].length();
+		}
+
+		byte[] bytes = new byte[starts[words.length]];
+		for (int id = 0; id < words.length; id++) {
+			byte[] word = words[id].getBytes(StandardCharsets.US_ASCII);
+			System.arraycopy(word, 0, bytes, starts[id], word.length);
+		}
+		return new WordTable(ByteBuffer.wrap(bytes), IntBuffer.wrap(starts));
+	}
+
+	/**
+	 * Returns the number of words in the table.
+	 *
+	 * @return the number of words
+	 */
+	int size() {
+		return starts.limit() - 1;
+	}
+
+	/**
+	 * Gets the word with the given id as a String.
+	 *
+	 * @param id - id of the word
+	 * @return the word
+	 */
+	String get(int id) {
+		byte[] word = new byte[starts.get(id + 1) - starts.get(id)];
+		bytes.get(starts.get(id), word);
+		return new String(word, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Appends the word with the given id, without creating a String for it.
+	 *
+	 * @param result - where to append the word
+	 * @param id     - id of the word
+	 */
+	void appendTo(StringBuilder result, int id) {
+		int end = starts.get(id + 1);
+		for (int i = starts.get(id); i < end; i++) {
+			result.append((char) bytes.get(i));
+		}
+	}
+
+	/**
+	 * Returns the length of the word with the given id.
+	 *
+	 * @param id - id of the word
+	 * @return the number of bytes in the word
+	 */
+	int length(int id) {
+		return starts.get(id + 1) - starts.get(id);
+	}
+
+	/**
+	 * Copies part of the word with the given id into an array.
+	 *
+	 * @param id          - id of the word
+	 * @param from        - position in the word of the first byte to copy
+	 * @param destination - where to copy the bytes
+	 * @param offset      - position in destination of the first byte
+	 * @param length      - number of bytes to copy
+	 */
+	void copy(int id, int from, byte[] destination, int offset, int length) {
+		bytes.get(starts.get(id) + from, destination, offset, length);
+	}
+
+	/**
+	 * Finds the id of a word.
+	 *
+	 * @param word - the word to look up
+	 * @return the id of the word, or -1 if it is not in the table
+	 */
+	int idOf(String word) {
+		int low = 0;
+		int high = size() - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = compare(middle, word);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the id of a word given as bytes.
+	 *
+	 * @param word   - array holding the word
+	 * @param offset - position of the word in the array
+	 * @param length - number of bytes in the word
+	 * @return the id of the word, or -1 if it is not in the table
+	 */
+	int idOf(byte[] word, int offset, int length) {
+		int low = 0;
+		int high = size() - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = compare(middle, word, offset, length);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares the word with the given id to a word given as bytes, in the same
+	 * order as String.compareTo.
+	 *
+	 * @param id     - id of the word in the table
+	 * @param word   - array holding the other word
+	 * @param offset - position of the other word in the array
+	 * @param length - number of bytes in the other word
+	 * @return a negative number, zero, or a positive number as the word in the
+	 *         table comes before, equals, or comes after the other word
+	 */
+	int compare(int id, byte[] word, int offset, int length) {
+		int start = starts.get(id);
+		int size = starts.get(id + 1) - start;
+		int shorter = Math.min(size, length);
+		for (int i = 0; i < shorter; i++) {
+			int difference = (bytes.get(start + i) & 0xFF) - (word[offset + i] & 0xFF);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return size - length;
+	}
+
+	/**
+	 * Compares the word with the given id to another word, in the same order as
+	 * String.compareTo.
+	 *
+	 * @param id   - id of the word in the table
+	 * @param word - the other word
+	 * @return a negative number, zero, or a positive number as the word in the
+	 *         table comes before, equals, or comes after the other word
+	 */
+	private int compare(int id, String word) {
+		int start = starts.get(id);
+		int length = starts.get(id + 1) - start;
+		int shorter = Math.min(length, word.length());
+		for (int i = 0; i < shorter; i++) {
+			int difference = (bytes.get(start + i) & 0xFF) - word.charAt(i);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return length - word.length();
+	}
+
+	/**
+	 * Returns a table of the same words held outside the Java heap.
+	 *
+	 * @return a table over direct copies of the words, or this table if it is
+	 *         already direct
+	 */
+	WordTable offHeap() {
+		if (bytes.isDirect() && starts.isDirect()) {
+			return this;
+		}
+		return new WordTable(DirectBuffers.of(bytes), DirectBuffers.of(starts));
+	}
+
+	/**
+	 * Gets the bytes of every word, back to back.
+	 *
+	 * @return the word bytes
+	 */
+	ByteBuffer getBytes() {
+		return bytes.duplicate();
+	}
+
+	/**
+	 * Gets the position of every word in the bytes, plus the end of the last.
+	 *
+	 * @return the word starts
+	 */
+	IntBuffer getStarts() {
+		return starts.duplicate();
+	}
+}
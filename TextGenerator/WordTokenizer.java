@@ -0,0 +1,229 @@
+package comprehensive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Splits a stream of bytes into words in a single pass. Letters are lowercased
+ * and every byte outside of [a-z0-9'_] separates words, which matches the
+ * tokenizing that used to be done with Scanner, toLowerCase and
+ * split("[^a-z0-9'_]+"). Only ASCII is treated as word characters, so any
+ * non-ASCII byte also separates words.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+class WordTokenizer {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Maps every byte to its lowercase word character, or zero if it separates
+	 * words.
+	 */
+	private static final byte[] WORD_CHARS = new byte[256];
+
+	static {
+		for (char c = 'a'; c <= 'z'; c++) {
+			WORD_CHARS[c] = (byte) c;
+			WORD_CHARS[Character.toUpperCase(c)] = (byte) c;
+		}
+		for (char c = '0'; c <= '9'; c++) {
+			WORD_CHARS[c] = (byte) c;
+		}
+		WORD_CHARS['\''] = '\'';
+		WORD_CHARS['_'] = '_';
+	}
+
+	/**
+	 * Receives the words of a text, one at a time.
+	 */
+	interface Sink {
+
+		/**
+		 * Takes the next word. The array is reused for the words after it, so the
+		 * word has to be copied if it is kept.
+		 *
+		 * @param word   - array holding the lowercased word from index zero
+		 * @param length - number of bytes in the word
+		 */
+		void word(byte[] word, int length);
+	}
+
+	private final Sink sink;
+	private byte[] word;
+	private int length;
+
+	/**
+	 * Creates a tokenizer that hands every completed word to the given sink.
+	 *
+	 * @param sink - receives each word, in order of appearance
+	 */
+	WordTokenizer(Sink sink) {
+		this.sink = sink;
+		word = new byte[32];
+		length = 0;
+	}
+
+	/**
+	 * Reads the whole channel and passes every word in it to the sink. The channel
+	 * is read through one reusable buffer, so memory use does not depend on the
+	 * size of the input.
+	 *
+	 * @param channel - the bytes to split into words
+	 * @param sink    - receives each word, in order of appearance
+	 * @throws IOException if the channel cannot be read
+	 */
+	static void tokenize(ReadableByteChannel channel, Sink sink) throws IOException {
+		WordTokenizer tokenizer = new WordTokenizer(sink);
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		while (channel.read(buffer) != -1) {
+			buffer.flip();
+			tokenizer.feed(buffer);
+			buffer.clear();
+		}
+		tokenizer.finish();
+	}
+
+	/**
+	 * Reads a range of a file and passes every word in it to the sink. The range
+	 * should begin and end between words, or the words on its edges are cut.
+	 *
+	 * @param channel - the file to read, which is not moved from its position
+	 * @param start   - position of the first byte to read
+	 * @param end     - position just past the last byte to read
+	 * @param sink    - receives each word, in order of appearance
+	 * @throws IOException if the file cannot be read
+	 */
+	static void tokenize(FileChannel channel, long start, long end, Sink sink) throws IOException {
+		WordTokenizer tokenizer = new WordTokenizer(sink);
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		long position = start;
+
+		while (position < end) {
+			buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+			int read = channel.read(buffer, position);
+			if (read == -1) {
+				break;
+			}
+			position += read;
+			buffer.flip();
+			tokenizer.feed(buffer);
+			buffer.clear();
+		}
+		tokenizer.finish();
+	}
+
+	/**
+	 * Finds the first position at or after the given one that does not fall in
+	 * the middle of a word, so that a file can be split there without cutting a
+	 * word in two.
+	 *
+	 * @param channel  - the file to search
+	 * @param position - where to start looking
+	 * @param end      - the position to stop at if no boundary comes first
+	 * @return a position between two words, or end
+	 * @throws IOException if the file cannot be read
+	 */
+	static long nextWordBoundary(FileChannel channel, long position, long end) throws IOException {
+		if (position <= 0) {
+			return 0;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		position--; // a word cannot span the boundary if the byte before it is a separator
+		while (position < end) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read == -1) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (!isWordByte(buffer.get(i))) {
+					return Math.min(position + i + 1, end);
+				}
+			}
+			position += read;
+		}
+		return end;
+	}
+
+	/**
+	 * Finds the last position at or before the given one that does not fall in
+	 * the middle of a word, for when no boundary follows it. Only positions after
+	 * start are considered.
+	 *
+	 * @param channel  - the file to search
+	 * @param position - where to start looking back from
+	 * @param start    - the position to stop at if no boundary comes first
+	 * @return a position between two words, or start
+	 * @throws IOException if the file cannot be read
+	 */
+	static long previousWordBoundary(FileChannel channel, long position, long start) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		while (position > start) {
+			long from = Math.max(start, position - buffer.capacity());
+			buffer.clear().limit((int) (position - from));
+			int read = channel.read(buffer, from);
+			for (int i = read - 1; i >= 0; i--) {
+				if (!isWordByte(buffer.get(i))) {
+					return from + i + 1;
+				}
+			}
+			position = from;
+		}
+		return start;
+	}
+
+	/**
+	 * Returns true if the given byte can be part of a word.
+	 *
+	 * @param b - the byte to check
+	 * @return true if b is a letter, digit, apostrophe or underscore
+	 */
+	static boolean isWordByte(byte b) {
+		return WORD_CHARS[b & 0xFF] != 0;
+	}
+
+	/**
+	 * Consumes every remaining byte of the buffer. A word that runs off the end of
+	 * the buffer is kept until the next call, so the input may be split anywhere.
+	 *
+	 * @param buffer - the next bytes of input
+	 */
+	void feed(ByteBuffer buffer) {
+		while (buffer.hasRemaining()) {
+			byte c = WORD_CHARS[buffer.get() & 0xFF];
+			if (c != 0) {
+				if (length == word.length) {
+					byte[] larger = new byte[word.length * 2];
+					System.arraycopy(word, 0, larger, 0, length);
+					word = larger;
+				}
+				word[length++] = c;
+			} else if (length > 0) {
+				emit();
+			}
+		}
+	}
+
+	/**
+	 * Passes along the last word, if the input did not end with a separator.
+	 */
+	void finish() {
+		if (length > 0) {
+			emit();
+		}
+	}
+
+	/**
+	 * Hands the word collected so far to the sink and starts a new one.
+	 */
+	private void emit() {
+		sink.word(word, length);
+		length = 0;
+	}
+}
@@ -0,0 +1,117 @@
+package comprehensive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes words of a WordTable to a stream, copying their bytes straight out of
+ * the table into a fixed buffer. No String is created for a word, and memory
+ * use stays the same however many words are written.
+ *
+ * @author agent
+ * @version October 17, 2026
+ */
+class WordWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final OutputStream out;
+	private final WordTable words;
+	private final byte[] buffer;
+	private int size;
+
+	/**
+	 * Creates a writer of words of the given table.
+	 *
+	 * @param out   - where to write the words
+	 * @param words - the table the words come from
+	 */
+	WordWriter(OutputStream out, WordTable words) {
+		this(out, words, BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a writer with a smaller buffer, for output that is known to be
+	 * short.
+	 *
+	 * @param out      - where to write the words
+	 * @param words    - the table the words come from
+	 * @param expected - about how many bytes will be written
+	 */
+	WordWriter(OutputStream out, WordTable words, long expected) {
+		this.out = out;
+		this.words = words;
+		buffer = new byte[(int) Math.max(Math.min(expected, BUFFER_SIZE), 16)];
+		size = 0;
+	}
+
+	/**
+	 * Writes the word with the given id.
+	 *
+	 * @param id - id of the word
+	 * @throws IOException if the stream cannot be written
+	 */
+	void write(int id) throws IOException {
+		int length = words.length(id);
+		for (int from = 0; from < length;) {
+			if (size == buffer.length) {
+				drain();
+			}
+			int chunk = Math.min(length - from, buffer.length - size);
+			words.copy(id, from, buffer, size, chunk);
+			size += chunk;
+			from += chunk;
+		}
+	}
+
+	/**
+	 * Writes the given bytes.
+	 *
+	 * @param bytes - the bytes to write
+	 * @throws IOException if the stream cannot be written
+	 */
+	void write(byte[] bytes) throws IOException {
+		for (int from = 0; from < bytes.length;) {
+			if (size == buffer.length) {
+				drain();
+			}
+			int chunk = Math.min(bytes.length - from, buffer.length - size);
+			System.arraycopy(bytes, from, buffer, size, chunk);
+			size += chunk;
+			from += chunk;
+		}
+	}
+
+	/**
+	 * Writes a single byte, such as a separator.
+	 *
+	 * @param b - the byte to write
+	 * @throws IOException if the stream cannot be written
+	 */
+	void write(byte b) throws IOException {
+		if (size == buffer.length) {
+			drain();
+		}
+		buffer[size++] = b;
+	}
+
+	/**
+	 * Writes out everything buffered so far and flushes the stream.
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	void flush() throws IOException {
+		drain();
+		out.flush();
+	}
+
+	/**
+	 * Writes out everything buffered so far.
+	 *
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void drain() throws IOException {
+		out.write(buffer, 0, size);
+		size = 0;
+	}
+}